@@ -0,0 +1,84 @@
+package tqs.services;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import tqs.data.BookingJdbcRepo;
+import tqs.data.BookingRequest;
+import tqs.data.BookingRequestRepo;
+import tqs.data.Slot;
+import tqs.data.SlotOccupancyRepo;
+import tqs.data.Status;
+import tqs.dto.BookingResponseDTO;
+
+import static org.mockito.Mockito.mock;
+
+// per-request work in the booking service that does not touch the database
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookingServiceBenchmark {
+
+    private BookingServiceImpl service;
+    private BookingRequest booking;
+    private String validToken;
+    private String invalidToken;
+
+    @Setup
+    public void setUp() {
+        // the benchmarked methods only need the token generator (and the registry for the timers),
+        // the collaborators that reach the database or other beans are never called
+        service = new BookingServiceImpl(mock(BookingRequestRepo.class), mock(BookingJdbcRepo.class),
+                mock(MunicipalityService.class), mock(SlotCapacityLedger.class), mock(SlotOccupancyRepo.class),
+                new TokenGenerator(), mock(BookingCache.class), mock(ApplicationEventPublisher.class),
+                mock(BookingArchiveService.class), new SimpleMeterRegistry());
+
+        booking = new BookingRequest("LISBOA", "Old sofa", LocalDate.now().plusDays(3), Slot.MORNING,
+                "user@example.com", "Abc Main Str. n1");
+        booking.setToken("ABCDEFGHIJ0123456789");
+        booking.addStatusHistory(Status.RECEIVED);
+        booking.addStatusHistory(Status.ASSIGNED);
+        booking.addStatusHistory(Status.IN_PROGRESS);
+
+        validToken = "ABCDEFGHIJ0123456789";
+        invalidToken = "abc\r\nFAKE LOG LINE";
+    }
+
+    @Benchmark
+    public BookingResponseDTO toResponseDTO() {
+        return service.toResponseDTO(booking);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return service.generateToken();
+    }
+
+    @Benchmark
+    public String sanitizeValidToken() {
+        return service.sanitizeForLog(validToken);
+    }
+
+    @Benchmark
+    public String sanitizeInvalidToken() {
+        return service.sanitizeForLog(invalidToken);
+    }
+}
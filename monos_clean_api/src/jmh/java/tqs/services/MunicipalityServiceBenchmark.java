@@ -0,0 +1,69 @@
+package tqs.services;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tqs.config.MunicipalityApiProperties;
+
+// municipality validation runs on every booking -- measured with a warm cache of the
+// real list size (308 municipalities)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MunicipalityServiceBenchmark {
+
+    private MunicipalityService service;
+
+    @Setup
+    public void setUp() {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 307; i++) {
+            names.add("Municipio " + i);
+        }
+        names.add("Lisboa");
+
+        MunicipalityApiProperties properties = new MunicipalityApiProperties("http://localhost", Duration.ofSeconds(1),
+                Duration.ofSeconds(1), 5, Duration.ofSeconds(30), 2, Duration.ofMillis(500));
+        ExternalMunicipalityClient client = new ExternalMunicipalityClient(new ObjectMapper(), properties) {
+            @Override
+            public List<String> fetchMunicipalityNamesRaw() {
+                return names;
+            }
+        };
+        service = new MunicipalityService(client);
+        service.isValid("LISBOA"); // fills the cache
+    }
+
+    @Benchmark
+    public boolean isValidExactCode() {
+        return service.isValid("LISBOA");
+    }
+
+    @Benchmark
+    public boolean isValidMixedCase() {
+        return service.isValid("Lisboa");
+    }
+
+    @Benchmark
+    public boolean isValidUnknown() {
+        return service.isValid("ATLANTIDA");
+    }
+}
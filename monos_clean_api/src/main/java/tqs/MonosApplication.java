@@ -2,8 +2,10 @@ package tqs;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class MonosApplication {
     public static void main(String[] args) {
         SpringApplication.run(MonosApplication.class, args);
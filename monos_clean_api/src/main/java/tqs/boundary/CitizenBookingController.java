@@ -1,7 +1,12 @@
 package tqs.boundary;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,21 +15,26 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import jakarta.validation.Valid;
 import tqs.dto.BookingRequestDTO;
 import tqs.dto.BookingResponseDTO;
+import tqs.services.BookingEventBroadcaster;
 import tqs.services.BookingService;
+import tqs.services.TokenFormat;
 
 @RestController
 @RequestMapping("/api/bookings")
 public class CitizenBookingController {
 
     private final BookingService service;
+    private final BookingEventBroadcaster broadcaster;
 
     @Autowired
-    public CitizenBookingController(BookingService service) {
+    public CitizenBookingController(BookingService service, BookingEventBroadcaster broadcaster) {
         this.service = service;
+        this.broadcaster = broadcaster;
     }
 
     @PostMapping
@@ -35,14 +45,35 @@ public class CitizenBookingController {
 
     @GetMapping("/{token}")
     public ResponseEntity<BookingResponseDTO> getBooking(@PathVariable("token") String token) {
+        TokenFormat.requireValid(token);
         BookingResponseDTO response = service.getBookingByToken(token);
-        return ResponseEntity.ok(response);
+        // the status page polls this -- an unchanged booking is answered with a bodyless 304,
+        // and no-cache makes browsers revalidate instead of reusing a stale status
+        return ResponseEntity.ok()
+                .eTag(etagOf(response))
+                .cacheControl(CacheControl.noCache())
+                .body(response);
+    }
+
+    // pushes every status change of this booking instead of polling the endpoint above
+    @GetMapping(value = "/{token}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamBookingEvents(@PathVariable("token") String token) {
+        TokenFormat.requireValid(token);
+        return broadcaster.subscribe(token, service::getBookingByTokenUncached);
     }
 
     @DeleteMapping("/{token}")
     public ResponseEntity<BookingResponseDTO> cancelBooking(@PathVariable("token") String token) {
+        TokenFormat.requireValid(token);
         service.cancelBookingByToken(token);
         return ResponseEntity.noContent().build();
     }
 
+    // changes with every status change, since each one stamps updatedAt
+    private static String etagOf(BookingResponseDTO booking) {
+        LocalDateTime changedAt = booking.getUpdatedAt() != null ? booking.getUpdatedAt() : booking.getCreatedAt();
+        long stamp = changedAt == null ? 0 : changedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L
+                + changedAt.getNano();
+        return booking.getToken() + "-" + booking.getStatus() + "-" + Long.toHexString(stamp);
+    }
 }
@@ -3,25 +3,45 @@ package tqs.boundary;
 
 import java.util.List;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import tqs.services.BookingService;
 import tqs.services.MunicipalityService;
 import tqs.dto.MunicipalityDTO;
+import tqs.dto.SlotAvailabilityDTO;
 
 @RestController
 @RequestMapping("/api")
 public class MunicipalitiesController {
 
     private final MunicipalityService service;
+    private final BookingService bookingService;
 
-    public MunicipalitiesController(MunicipalityService service) {
+    public MunicipalitiesController(MunicipalityService service, BookingService bookingService) {
         this.service = service;
+        this.bookingService = bookingService;
     }
 
     @GetMapping("/municipalities")
-    public List<MunicipalityDTO> getMunicipalities() {
-        return service.getAllMunicipalities();
+    public ResponseEntity<List<MunicipalityDTO>> getMunicipalities() {
+        // a matching If-None-Match gets a 304 with no body
+        MunicipalityService.Listing listing = service.getListing();
+        return ResponseEntity.ok()
+                .eTag(listing.version())
+                .cacheControl(CacheControl.maxAge(MunicipalityService.CACHE_TTL).cachePublic())
+                .body(listing.municipalities());
     }
-}
\ No newline at end of file
+
+    // changes with every booking, so it must not be cached
+    @GetMapping("/municipalities/{code}/availability")
+    public ResponseEntity<SlotAvailabilityDTO> getAvailability(@PathVariable("code") String code) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(bookingService.getAvailability(code));
+    }
+}
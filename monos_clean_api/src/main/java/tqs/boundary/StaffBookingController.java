@@ -1,61 +1,156 @@
 package tqs.boundary;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.time.LocalDate;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import tqs.data.Status;
+import jakarta.validation.Valid;
+import tqs.dto.BookingPageDTO;
+import tqs.dto.BookingRequestDTO;
 import tqs.dto.BookingResponseDTO;
+import tqs.dto.BulkStatusResultDTO;
+import tqs.dto.BulkStatusUpdateDTO;
+import tqs.dto.ImportResultDTO;
+import tqs.services.BookingEventBroadcaster;
+import tqs.services.BookingExportService;
+import tqs.services.BookingImportService;
 import tqs.services.BookingService;
+import tqs.services.TokenFormat;
 
 @RestController
 @RequestMapping("/api/staff/bookings")
 public class StaffBookingController {
 
+    // the body stays a plain array, the cursor for the next page travels in this header
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String DEFAULT_PAGE_SIZE = "50";
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
     private final BookingService service;
+    private final BookingExportService exportService;
+    private final BookingImportService importService;
+    private final BookingEventBroadcaster broadcaster;
 
     @Autowired
-    public StaffBookingController(BookingService service) {
+    public StaffBookingController(BookingService service, BookingExportService exportService,
+            BookingImportService importService, BookingEventBroadcaster broadcaster) {
         this.service = service;
+        this.exportService = exportService;
+        this.importService = importService;
+        this.broadcaster = broadcaster;
     }
 
     @GetMapping
-    public ResponseEntity<List<BookingResponseDTO>> getAllBookings() {
-        List<BookingResponseDTO> bookings = service.getBookingsByDateRange(
+    public ResponseEntity<List<BookingResponseDTO>> getAllBookings(
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(value = "after", required = false) Long after) {
+        BookingPageDTO bookings = service.getBookingsByDateRange(
                 LocalDate.now().minusDays(7),
-                LocalDate.now().plusDays(14));
-        return ResponseEntity.ok(bookings);
+                LocalDate.now().plusDays(14),
+                page, size, after);
+        return toResponse(bookings);
     }
 
     @GetMapping(params = "municipality")
     public ResponseEntity<List<BookingResponseDTO>> getBookingsByMunicipalityAndDate(
             @RequestParam("municipality") String municipality,
-            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        List<BookingResponseDTO> bookings = service.getBookingsByMunicipalityByDate(municipality, date);
-        return ResponseEntity.ok(bookings);
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(value = "after", required = false) Long after) {
+        BookingPageDTO bookings = service.getBookingsByMunicipalityByDate(municipality, date, page, size, after);
+        return toResponse(bookings);
     }
 
     @GetMapping(params = "status")
     public ResponseEntity<List<BookingResponseDTO>> getBookingsByStatus(
-            @RequestParam("status") Status status) {
-        List<BookingResponseDTO> bookings = service.getBookingsByStatus(status);
-        return ResponseEntity.ok(bookings);
+            @RequestParam("status") Status status,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(value = "after", required = false) Long after) {
+        BookingPageDTO bookings = service.getBookingsByStatus(status, page, size, after);
+        return toResponse(bookings);
+    }
+
+    // streams the whole range for reporting -- no paging, nothing buffered in memory
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBookings(
+            @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end,
+            @RequestParam(value = "format", defaultValue = "NDJSON") BookingExportService.Format format) {
+        exportService.validateRange(start, end);
+        StreamingResponseBody body = out -> exportService.export(start, end, format, out);
+
+        if (format == BookingExportService.Format.CSV) {
+            return ResponseEntity.ok()
+                    .contentType(CSV)
+                    .header(HttpHeaders.CONTENT_DISPOSITION,
+                            "attachment; filename=\"bookings-" + start + "-" + end + ".csv\"")
+                    .body(body);
+        }
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    // moves many bookings at once -- each token gets its own outcome, one bad token does
+    // not stop the rest
+    @PatchMapping("/bulk-update")
+    public ResponseEntity<List<BulkStatusResultDTO>> updateBookings(@Valid @RequestBody BulkStatusUpdateDTO request) {
+        return ResponseEntity.ok(service.updateBookingStatuses(request.getTokens(), request.getNewStatus()));
+    }
+
+    // bookings taken over the phone -- rows are checked one by one, a rejected row does not
+    // stop the others
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ImportResultDTO>> importBookings(@RequestBody List<BookingRequestDTO> requests) {
+        return ResponseEntity.ok(importService.importBookings(requests));
+    }
+
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<List<ImportResultDTO>> importBookingsCsv(@RequestBody String csv) throws IOException {
+        return ResponseEntity.ok(importService.importCsv(new StringReader(csv)));
+    }
+
+    // live feed of every status change, for the dashboard
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamAllBookingEvents() {
+        return broadcaster.subscribeAll();
     }
 
     @PatchMapping("/{token}/update")
     public ResponseEntity<BookingResponseDTO> updateBooking(
             @PathVariable("token") String token,
             @RequestParam("newStatus") Status newStatus) {
+        TokenFormat.requireValid(token);
         BookingResponseDTO updated = service.updateBookingStatus(token, newStatus);
         return ResponseEntity.ok(updated);
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<List<BookingResponseDTO>> toResponse(BookingPageDTO page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getItems());
+    }
+}
@@ -0,0 +1,35 @@
+package tqs.boundary;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import tqs.dto.SlotOccupancyDTO;
+import tqs.services.BookingService;
+
+@RestController
+@RequestMapping("/api/staff/occupancy")
+public class StaffOccupancyController {
+
+    private final BookingService service;
+
+    @Autowired
+    public StaffOccupancyController(BookingService service) {
+        this.service = service;
+    }
+
+    // booked places per municipality, day and slot -- read from the counters, no booking is loaded
+    @GetMapping
+    public ResponseEntity<List<SlotOccupancyDTO>> getOccupancy(
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(service.getOccupancy(from, to));
+    }
+}
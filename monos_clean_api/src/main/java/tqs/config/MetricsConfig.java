@@ -0,0 +1,128 @@
+package tqs.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import tqs.data.Slot;
+import tqs.services.BookingArchiveService;
+import tqs.services.BookingCache;
+import tqs.services.BookingEventBroadcaster;
+import tqs.services.BookingServiceImpl;
+import tqs.services.ExternalMunicipalityClient;
+import tqs.services.MunicipalityService;
+import tqs.services.SlotCapacityLedger;
+
+// custom meters, exposed through the actuator metrics and prometheus endpoints -- the
+// booking timers themselves are registered by BookingServiceImpl
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder municipalityApiMetrics(ExternalMunicipalityClient client) {
+        return registry -> {
+            Gauge.builder("municipality.api.circuit.state", client, c -> c.getCircuitState().ordinal())
+                    .description("Circuit breaker state: 0 closed, 1 open, 2 half open")
+                    .register(registry);
+            Gauge.builder("municipality.api.bulkhead.available", client,
+                    ExternalMunicipalityClient::getAvailableConcurrentCalls)
+                    .description("Free slots for concurrent calls to the municipality API")
+                    .register(registry);
+            FunctionCounter.builder("municipality.api.calls.rejected", client,
+                    ExternalMunicipalityClient::getRejectedCalls)
+                    .description("Calls refused by the open circuit or a full bulkhead")
+                    .register(registry);
+            FunctionCounter.builder("municipality.api.calls.failed", client,
+                    ExternalMunicipalityClient::getFailedCalls)
+                    .description("Calls to the municipality API that errored or timed out")
+                    .register(registry);
+            FunctionTimer.builder("municipality.api.calls", client, ExternalMunicipalityClient::getCompletedCalls,
+                    ExternalMunicipalityClient::getCallNanos, TimeUnit.NANOSECONDS)
+                    .description("Calls that reached the municipality API, and the time spent waiting on them")
+                    .register(registry);
+            FunctionCounter.builder("municipality.api.calls.not_modified", client,
+                    ExternalMunicipalityClient::getNotModifiedResponses)
+                    .description("Refreshes answered with 304, reusing the previous list")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder municipalityCacheMetrics(MunicipalityService service) {
+        return registry -> {
+            FunctionCounter.builder("municipality.cache.hits", service, MunicipalityService::getCacheHits)
+                    .description("Lookups answered from the cached municipality list")
+                    .register(registry);
+            FunctionCounter.builder("municipality.cache.misses", service, MunicipalityService::getCacheMisses)
+                    .description("Lookups that waited for the first load of the list")
+                    .register(registry);
+            FunctionCounter.builder("municipality.cache.refreshes", service, MunicipalityService::getRefreshes)
+                    .description("Loads of the municipality list, by result")
+                    .tag("result", "success")
+                    .register(registry);
+            FunctionCounter.builder("municipality.cache.refreshes", service, MunicipalityService::getFailedRefreshes)
+                    .description("Loads of the municipality list, by result")
+                    .tag("result", "failure")
+                    .register(registry);
+        };
+    }
+
+    // one series per slot of the day -- summed over municipalities and dates to keep the
+    // tag count fixed
+    @Bean
+    public MeterBinder slotOccupancyMetrics(SlotCapacityLedger ledger) {
+        return registry -> {
+            for (Slot slot : Slot.values()) {
+                Gauge.builder("booking.slots.booked", ledger, l -> l.booked(slot))
+                        .description("Places taken in the bookable window")
+                        .tag("slot", slot.name())
+                        .register(registry);
+                Gauge.builder("booking.slots.full", ledger,
+                        l -> l.full(slot, BookingServiceImpl.MAX_CAPACITY_PER_SLOT))
+                        .description("Municipality and date pairs with no place left")
+                        .tag("slot", slot.name())
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder bookingCacheMetrics(BookingCache cache) {
+        return registry -> {
+            FunctionCounter.builder("booking.cache.hits", cache, BookingCache::getHits)
+                    .description("Token lookups answered from the booking cache")
+                    .register(registry);
+            FunctionCounter.builder("booking.cache.misses", cache, BookingCache::getMisses)
+                    .description("Token lookups that had to go to the database")
+                    .register(registry);
+            FunctionCounter.builder("booking.cache.evictions", cache, BookingCache::getEvictions)
+                    .description("Entries dropped for size or expiry")
+                    .register(registry);
+            Gauge.builder("booking.cache.size", cache, BookingCache::size)
+                    .description("Bookings currently cached")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder bookingArchiveMetrics(BookingArchiveService archive) {
+        return registry -> FunctionCounter.builder("booking.archive.archived", archive,
+                BookingArchiveService::getArchived)
+                .description("Terminal bookings moved to the archive tables")
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder bookingEventMetrics(BookingEventBroadcaster broadcaster) {
+        return registry -> Gauge.builder("booking.events.subscribers", broadcaster,
+                BookingEventBroadcaster::getSubscriberCount)
+                .description("Open booking status event streams")
+                .register(registry);
+    }
+}
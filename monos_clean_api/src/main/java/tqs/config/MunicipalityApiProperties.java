@@ -0,0 +1,21 @@
+package tqs.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+// settings for the geoapi.pt municipality client -- timeouts, circuit breaker and bulkhead
+@ConfigurationProperties(prefix = "municipalities.api")
+public record MunicipalityApiProperties(
+        @DefaultValue("https://json.geoapi.pt/municipio") String url,
+        @DefaultValue("2s") Duration connectTimeout,
+        @DefaultValue("5s") Duration readTimeout,
+        // consecutive failures that open the circuit
+        @DefaultValue("5") int failureThreshold,
+        // how long the circuit stays open before a trial call is let through
+        @DefaultValue("30s") Duration openDuration,
+        // bulkhead -- concurrent calls allowed and how long to wait for a free one
+        @DefaultValue("2") int maxConcurrentCalls,
+        @DefaultValue("500ms") Duration maxWait) {
+}
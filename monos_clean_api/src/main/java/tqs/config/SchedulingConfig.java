@@ -0,0 +1,10 @@
+package tqs.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// background jobs -- currently only the booking archiver
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
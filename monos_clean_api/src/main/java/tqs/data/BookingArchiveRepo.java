@@ -0,0 +1,183 @@
+package tqs.data;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// moves terminal bookings into the partitioned archive tables (see V3__booking_archive.sql)
+// and reads them back -- postgres only, callers check BookingArchiveService.isEnabled
+@Repository
+public class BookingArchiveRepo {
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    // skip locked -- a booking someone is touching right now is simply left for the next run
+    private static final String LOCK_ARCHIVABLE = "SELECT id FROM bookings "
+            + "WHERE status IN ('COMPLETED', 'CANCELLED') AND updated_at < ? AND collection_date < ? "
+            + "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String MONTHS_OF = "SELECT DISTINCT CAST(date_trunc('month', collection_date) AS date) "
+            + "FROM bookings WHERE id = ANY(?)";
+
+    private static final String MOVE_HISTORY = "WITH moved AS ("
+            + "DELETE FROM booking_status_history h USING bookings b "
+            + "WHERE h.booking_id = b.id AND b.id = ANY(?) "
+            + "RETURNING h.id, h.booking_id, b.collection_date, h.status, h.timestamp) "
+            + "INSERT INTO booking_status_history_archive (id, booking_id, collection_date, status, timestamp) "
+            + "SELECT id, booking_id, collection_date, status, timestamp FROM moved";
+
+    private static final String MOVE_BOOKINGS = "WITH moved AS ("
+            + "DELETE FROM bookings WHERE id = ANY(?) "
+            + "RETURNING id, token, municipality, description, collection_date, time_slot, status, contact_info, "
+            + "address, created_at, updated_at) "
+            + "INSERT INTO bookings_archive (id, token, municipality, description, collection_date, time_slot, "
+            + "status, contact_info, address, created_at, updated_at) "
+            + "SELECT id, token, municipality, description, collection_date, time_slot, status, contact_info, "
+            + "address, created_at, updated_at FROM moved";
+
+    private static final String FIND_BY_TOKEN = "SELECT id, token, municipality, description, collection_date, "
+            + "time_slot, status, contact_info, address, created_at, updated_at FROM bookings_archive "
+            + "WHERE token = ?";
+
+    // the collection date lets postgres prune the history lookup to a single partition
+    private static final String FIND_HISTORY = "SELECT id, status, timestamp FROM booking_status_history_archive "
+            + "WHERE booking_id = ? AND collection_date = ? ORDER BY timestamp, id";
+
+    // listings page through the archive by id like they do through the live table
+    private static final String FIND_BETWEEN = "SELECT id, token, municipality, description, collection_date, "
+            + "time_slot, status, contact_info, address, created_at, updated_at FROM bookings_archive "
+            + "WHERE collection_date BETWEEN ? AND ? AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String FIND_BY_MUNICIPALITY_AND_DATE = "SELECT id, token, municipality, description, "
+            + "collection_date, time_slot, status, contact_info, address, created_at, updated_at "
+            + "FROM bookings_archive WHERE municipality = ? AND collection_date = ? AND id > ? ORDER BY id LIMIT ?";
+
+    private static final String FIND_HISTORY_BETWEEN = "SELECT id, booking_id, status, timestamp "
+            + "FROM booking_status_history_archive "
+            + "WHERE booking_id = ANY(?) AND collection_date BETWEEN ? AND ? ORDER BY timestamp, id";
+
+    private static final String STREAM_BETWEEN = "SELECT id, token, municipality, description, collection_date, "
+            + "time_slot, status, contact_info, address, created_at, updated_at FROM bookings_archive "
+            + "WHERE collection_date BETWEEN ? AND ? ORDER BY id";
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbc;
+
+    @Autowired
+    public BookingArchiveRepo(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // must run in the same transaction as the moves, the row locks are what keeps the batch stable
+    public List<Long> lockArchivable(LocalDateTime terminalBefore, LocalDate collectedBefore, int limit) {
+        return jdbc.queryForList(LOCK_ARCHIVABLE, Long.class, terminalBefore, collectedBefore, limit);
+    }
+
+    public void ensurePartitions(List<Long> ids) {
+        List<LocalDate> months = jdbc.query(MONTHS_OF, ps -> ps.setArray(1, idArray(ps.getConnection(), ids)),
+                (rs, n) -> rs.getObject(1, LocalDate.class));
+        for (LocalDate month : months) {
+            String suffix = month.format(PARTITION_SUFFIX);
+            String range = " FOR VALUES FROM ('" + month + "') TO ('" + month.plusMonths(1) + "')";
+            jdbc.execute("CREATE TABLE IF NOT EXISTS bookings_archive_" + suffix
+                    + " PARTITION OF bookings_archive" + range);
+            jdbc.execute("CREATE TABLE IF NOT EXISTS booking_status_history_archive_" + suffix
+                    + " PARTITION OF booking_status_history_archive" + range);
+        }
+    }
+
+    // history first, its rows still reference the bookings through the foreign key
+    public int moveToArchive(List<Long> ids) {
+        jdbc.update(MOVE_HISTORY, ps -> ps.setArray(1, idArray(ps.getConnection(), ids)));
+        return jdbc.update(MOVE_BOOKINGS, ps -> ps.setArray(1, idArray(ps.getConnection(), ids)));
+    }
+
+    // detached entity with its history, for the read-only token lookup
+    public Optional<BookingRequest> findByToken(String token) {
+        Optional<BookingRequest> found = jdbc.query(FIND_BY_TOKEN, this::mapBooking, token).stream().findFirst();
+        found.ifPresent(booking -> booking.getStatusHistory().addAll(jdbc.query(FIND_HISTORY,
+                (rs, n) -> mapHistory(rs, booking), booking.getId(), booking.getCollectionDate())));
+        return found;
+    }
+
+    // bookings with ids after `after` in id order, each with its history
+    public List<BookingRequest> findByCollectionDateBetween(LocalDate start, LocalDate end, long after, int limit) {
+        return withHistory(jdbc.query(FIND_BETWEEN, this::mapBooking, start, end, after, limit), start, end);
+    }
+
+    public List<BookingRequest> findByMunicipalityAndCollectionDate(String municipality, LocalDate date, long after,
+            int limit) {
+        return withHistory(jdbc.query(FIND_BY_MUNICIPALITY_AND_DATE, this::mapBooking, municipality, date, after,
+                limit), date, date);
+    }
+
+    // export cursor without the history -- must be consumed inside a transaction and closed
+    public Stream<BookingRequest> streamByCollectionDateBetween(LocalDate start, LocalDate end) {
+        return jdbc.queryForStream(connection -> {
+            PreparedStatement statement = connection.prepareStatement(STREAM_BETWEEN);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            statement.setObject(1, start);
+            statement.setObject(2, end);
+            return statement;
+        }, this::mapBooking);
+    }
+
+    // one history query for the whole page, pruned to the partitions of the date range
+    private List<BookingRequest> withHistory(List<BookingRequest> bookings, LocalDate start, LocalDate end) {
+        if (bookings.isEmpty()) {
+            return bookings;
+        }
+        Map<Long, BookingRequest> byId = bookings.stream()
+                .collect(Collectors.toMap(BookingRequest::getId, Function.identity()));
+        jdbc.query(FIND_HISTORY_BETWEEN, ps -> {
+            ps.setArray(1, idArray(ps.getConnection(), List.copyOf(byId.keySet())));
+            ps.setObject(2, start);
+            ps.setObject(3, end);
+        }, rs -> {
+            BookingRequest booking = byId.get(rs.getLong("booking_id"));
+            booking.getStatusHistory().add(mapHistory(rs, booking));
+        });
+        return bookings;
+    }
+
+    private static Array idArray(Connection connection, List<Long> ids) throws SQLException {
+        return connection.createArrayOf("bigint", ids.toArray());
+    }
+
+    private BookingRequest mapBooking(ResultSet rs, int rowNum) throws SQLException {
+        BookingRequest booking = new BookingRequest(rs.getString("municipality"), rs.getString("description"),
+                rs.getObject("collection_date", LocalDate.class), Slot.valueOf(rs.getString("time_slot")),
+                rs.getString("contact_info"), rs.getString("address"));
+        booking.setId(rs.getLong("id"));
+        booking.setToken(rs.getString("token"));
+        booking.setStatus(Status.valueOf(rs.getString("status")));
+        booking.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        Timestamp updatedAt = rs.getTimestamp("updated_at");
+        booking.setUpdatedAt(updatedAt == null ? null : updatedAt.toLocalDateTime());
+        return booking;
+    }
+
+    private StatusHistory mapHistory(ResultSet rs, BookingRequest booking) throws SQLException {
+        StatusHistory history = new StatusHistory(booking, Status.valueOf(rs.getString("status")));
+        history.setId(rs.getLong("id"));
+        history.setTimestamp(rs.getTimestamp("timestamp").toLocalDateTime());
+        return history;
+    }
+}
@@ -0,0 +1,90 @@
+package tqs.data;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// writes that go around hibernate -- identity ids stop it from batching inserts, so these
+// are sent as plain jdbc on the connection of the current transaction
+@Repository
+public class BookingJdbcRepo {
+
+    private static final String UPDATE_STATUS = "UPDATE bookings SET status = ?, updated_at = ? "
+            + "WHERE id = ? AND status = ?";
+
+    private static final String INSERT_HISTORY = "INSERT INTO booking_status_history (booking_id, status, timestamp) "
+            + "VALUES (?, ?, ?)";
+
+    private static final String INSERT_BOOKING = "INSERT INTO bookings (token, municipality, description, "
+            + "collection_date, time_slot, status, contact_info, address, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbc;
+
+    @Autowired
+    public BookingJdbcRepo(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    // only moves rows still in the expected status -- a 0 in the result means someone
+    // else changed that booking first
+    public int[] updateStatuses(List<StatusChange> changes) {
+        return jdbc.batchUpdate(UPDATE_STATUS, changes.stream()
+                .map(c -> new Object[] { c.to().name(), c.at(), c.bookingId(), c.from().name() })
+                .toList());
+    }
+
+    public int[] insertHistory(List<StatusChange> changes) {
+        return jdbc.batchUpdate(INSERT_HISTORY, changes.stream()
+                .map(c -> new Object[] { c.bookingId(), c.to().name(), c.at() })
+                .toList());
+    }
+
+    // like createBooking, new rows start in RECEIVED with no history entry
+    public int[] insertBookings(List<BookingRequest> bookings) {
+        return jdbc.batchUpdate(INSERT_BOOKING, bookings.stream()
+                .map(BookingJdbcRepo::insertValues)
+                .toList());
+    }
+
+    // one new booking, under a savepoint so a failed insert (a taken token shows up as a
+    // DuplicateKeyException) leaves the transaction usable -- postgres would abort it otherwise.
+    // must run inside a transaction; fills in the generated id
+    public void insertBooking(BookingRequest booking) {
+        jdbc.execute((ConnectionCallback<Void>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_BOOKING,
+                    Statement.RETURN_GENERATED_KEYS)) {
+                Object[] values = insertValues(booking);
+                for (int i = 0; i < values.length; i++) {
+                    statement.setObject(i + 1, values[i]);
+                }
+                statement.executeUpdate();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        booking.setId(keys.getLong("id"));
+                    }
+                }
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                throw e;
+            }
+            connection.releaseSavepoint(savepoint);
+            return null;
+        });
+    }
+
+    private static Object[] insertValues(BookingRequest b) {
+        return new Object[] { b.getToken(), b.getMunicipality(), b.getDescription(), b.getCollectionDate(),
+                b.getTimeSlot().name(), b.getStatus().name(), b.getContactInfo(), b.getAddress(), b.getCreatedAt(),
+                b.getUpdatedAt() };
+    }
+}
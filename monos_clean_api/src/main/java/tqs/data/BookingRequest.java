@@ -5,13 +5,20 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.hibernate.annotations.BatchSize;
+
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 
 @Entity
+// the schema is owned by the flyway scripts in db/migration -- keep these in step with them
 @Table(name = "bookings", indexes = {
         @Index(name = "idx_token", columnList = "token", unique = true),
-        @Index(name = "idx_municipality_date", columnList = "municipality, collection_date")
+        @Index(name = "idx_bookings_slot", columnList = "municipality, collection_date, time_slot, status"),
+        @Index(name = "idx_bookings_status_date", columnList = "status, collection_date"),
+        @Index(name = "idx_bookings_collection_date", columnList = "collection_date"),
+        // partial in V3, over COMPLETED and CANCELLED rows only
+        @Index(name = "idx_bookings_terminal", columnList = "updated_at")
 })
 public class BookingRequest {
     @Id
@@ -68,8 +75,11 @@ public class BookingRequest {
 
     // history of status changes - the evolution of states is timestamped and
     // displayed in the web page
+    // batch fetched so listings load the history of up to 100 bookings per query
+    // instead of one query per booking
     @OneToMany(mappedBy = "booking", cascade = CascadeType.ALL, orphanRemoval = true)
     @OrderBy("timestamp ASC")
+    @BatchSize(size = 100)
     private List<StatusHistory> statusHistory = new ArrayList<>();
 
     public BookingRequest() {
@@ -1,21 +1,42 @@
 package tqs.data;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface BookingRequestRepo extends JpaRepository<BookingRequest, Long> {
         public Optional<BookingRequest> findById(Long id);
 
         public Optional<BookingRequest> findByToken(String token);
 
+        public List<BookingRequest> findByTokenIn(Collection<String> tokens);
+
         public long countByMunicipalityAndCollectionDateAndTimeSlot(String municipality, LocalDate collectionDate,
                         Slot timeSlot);
 
+        public long countByMunicipalityAndCollectionDateAndTimeSlotAndStatusNot(String municipality,
+                        LocalDate collectionDate, Slot timeSlot, Status status);
+
+        // used to seed the slot capacity ledger -- one row per occupied slot in the range
+        @Query("SELECT b.municipality AS municipality, b.collectionDate AS collectionDate, "
+                        + "b.timeSlot AS timeSlot, COUNT(b) AS booked FROM BookingRequest b "
+                        + "WHERE b.collectionDate BETWEEN :start AND :end AND b.status <> :excluded "
+                        + "GROUP BY b.municipality, b.collectionDate, b.timeSlot")
+        public List<SlotCount> countBySlotBetween(@Param("start") LocalDate start, @Param("end") LocalDate end,
+                        @Param("excluded") Status excluded);
+
         public List<BookingRequest> findByStatus(Status status);
 
         public List<BookingRequest> findByCollectionDateBetween(LocalDate start, LocalDate end);
@@ -23,4 +44,29 @@ public interface BookingRequestRepo extends JpaRepository<BookingRequest, Long>
         public List<BookingRequest> findByMunicipalityAndCollectionDate(String municipality,
                         LocalDate collectionDate);
 
+        // paged listings -- offset pages and keyset pages (ids after a cursor)
+        public List<BookingRequest> findByStatus(Status status, Pageable pageable);
+
+        public List<BookingRequest> findByStatusAndIdGreaterThan(Status status, Long id, Pageable pageable);
+
+        public List<BookingRequest> findByCollectionDateBetween(LocalDate start, LocalDate end, Pageable pageable);
+
+        public List<BookingRequest> findByCollectionDateBetweenAndIdGreaterThan(LocalDate start, LocalDate end,
+                        Long id, Pageable pageable);
+
+        public List<BookingRequest> findByMunicipalityAndCollectionDate(String municipality,
+                        LocalDate collectionDate, Pageable pageable);
+
+        public List<BookingRequest> findByMunicipalityAndCollectionDateAndIdGreaterThan(String municipality,
+                        LocalDate collectionDate, Long id, Pageable pageable);
+
+        // export cursor -- rows are fetched from the driver in chunks and loaded read-only,
+        // must be consumed inside a transaction and closed
+        @QueryHints({
+                        @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+                        @QueryHint(name = "org.hibernate.readOnly", value = "true")
+        })
+        @Query("SELECT b FROM BookingRequest b WHERE b.collectionDate BETWEEN :start AND :end ORDER BY b.id")
+        public Stream<BookingRequest> streamByCollectionDateBetween(@Param("start") LocalDate start,
+                        @Param("end") LocalDate end);
 }
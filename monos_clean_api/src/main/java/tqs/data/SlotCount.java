@@ -0,0 +1,14 @@
+package tqs.data;
+
+import java.time.LocalDate;
+
+// projection for the grouped per-slot booking counts
+public interface SlotCount {
+    String getMunicipality();
+
+    LocalDate getCollectionDate();
+
+    Slot getTimeSlot();
+
+    long getBooked();
+}
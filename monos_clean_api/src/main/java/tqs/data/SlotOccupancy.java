@@ -0,0 +1,84 @@
+package tqs.data;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import jakarta.persistence.*;
+
+// non-cancelled bookings per (municipality, date, slot), kept up to date in the same
+// transaction as the bookings themselves -- read and written through SlotOccupancyRepo,
+// mapped here so hibernate can validate (and on h2 create) the table
+@Entity
+@IdClass(SlotOccupancy.Key.class)
+@Table(name = "slot_occupancy", indexes = {
+        @Index(name = "idx_slot_occupancy_date", columnList = "collection_date")
+})
+public class SlotOccupancy {
+
+    @Id
+    @Column(nullable = false, length = 10)
+    private String municipality;
+
+    @Id
+    @Column(name = "collection_date", nullable = false)
+    private LocalDate collectionDate;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "time_slot", nullable = false, length = 20)
+    private Slot timeSlot;
+
+    @Column(nullable = false)
+    private int booked;
+
+    public static class Key implements Serializable {
+        private String municipality;
+        private LocalDate collectionDate;
+        private Slot timeSlot;
+
+        public Key() {
+        }
+
+        public Key(String municipality, LocalDate collectionDate, Slot timeSlot) {
+            this.municipality = municipality;
+            this.collectionDate = collectionDate;
+            this.timeSlot = timeSlot;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return Objects.equals(municipality, other.municipality)
+                    && Objects.equals(collectionDate, other.collectionDate)
+                    && timeSlot == other.timeSlot;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(municipality, collectionDate, timeSlot);
+        }
+    }
+
+    public String getMunicipality() {
+        return municipality;
+    }
+
+    public LocalDate getCollectionDate() {
+        return collectionDate;
+    }
+
+    public Slot getTimeSlot() {
+        return timeSlot;
+    }
+
+    public int getBooked() {
+        return booked;
+    }
+}
@@ -0,0 +1,89 @@
+package tqs.data;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// counters in slot_occupancy, changed with conditional updates on the connection of the
+// current transaction -- so they commit or roll back together with the booking rows
+@Repository
+public class SlotOccupancyRepo {
+
+    // postgres waits for a concurrent insert of the same key and then does nothing, without
+    // aborting the transaction
+    private static final String ENSURE_ROW_POSTGRES = "INSERT INTO slot_occupancy "
+            + "(municipality, collection_date, time_slot, booked) VALUES (?, ?, ?, 0) ON CONFLICT DO NOTHING";
+
+    // h2 (tests) has no ON CONFLICT -- a duplicate only fails the statement there, not the transaction
+    private static final String ENSURE_ROW_PORTABLE = "INSERT INTO slot_occupancy "
+            + "(municipality, collection_date, time_slot, booked) "
+            + "SELECT CAST(? AS VARCHAR(10)), CAST(? AS DATE), CAST(? AS VARCHAR(20)), 0 WHERE NOT EXISTS "
+            + "(SELECT 1 FROM slot_occupancy WHERE municipality = ? AND collection_date = ? AND time_slot = ?)";
+
+    private static final String ADD = "UPDATE slot_occupancy SET booked = booked + ? "
+            + "WHERE municipality = ? AND collection_date = ? AND time_slot = ? AND booked + ? <= ?";
+
+    private static final String REMOVE = "UPDATE slot_occupancy SET booked = booked - 1 "
+            + "WHERE municipality = ? AND collection_date = ? AND time_slot = ? AND booked > 0";
+
+    private static final String FIND_BETWEEN = "SELECT municipality, collection_date, time_slot, booked "
+            + "FROM slot_occupancy WHERE collection_date BETWEEN ? AND ? AND booked > 0 "
+            + "ORDER BY collection_date, municipality, time_slot";
+
+    public record Row(String municipality, LocalDate collectionDate, Slot timeSlot, int booked) {
+    }
+
+    private final JdbcTemplate jdbc;
+    private final boolean postgres;
+
+    @Autowired
+    public SlotOccupancyRepo(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+        this.postgres = Boolean.TRUE.equals(jdbc.execute((ConnectionCallback<Boolean>) (Connection connection) ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+    }
+
+    // takes `count` places if the slot stays within capacity -- false leaves the row untouched.
+    // the row lock taken by the update queues concurrent bookings for the same slot, which is
+    // what keeps several app instances from overbooking it. the row usually exists already, so
+    // it is only created, and the update retried, when the first update misses
+    public boolean tryAdd(String municipality, LocalDate date, Slot slot, int count, int capacity) {
+        if (add(municipality, date, slot, count, capacity)) {
+            return true;
+        }
+        ensureRow(municipality, date, slot);
+        return add(municipality, date, slot, count, capacity);
+    }
+
+    public void remove(String municipality, LocalDate date, Slot slot) {
+        jdbc.update(REMOVE, municipality, date, slot.name());
+    }
+
+    public List<Row> findBetween(LocalDate from, LocalDate to) {
+        return jdbc.query(FIND_BETWEEN, (rs, n) -> new Row(rs.getString("municipality"),
+                rs.getObject("collection_date", LocalDate.class), Slot.valueOf(rs.getString("time_slot")),
+                rs.getInt("booked")), from, to);
+    }
+
+    private boolean add(String municipality, LocalDate date, Slot slot, int count, int capacity) {
+        return jdbc.update(ADD, count, municipality, date, slot.name(), count, capacity) == 1;
+    }
+
+    private void ensureRow(String municipality, LocalDate date, Slot slot) {
+        if (postgres) {
+            jdbc.update(ENSURE_ROW_POSTGRES, municipality, date, slot.name());
+            return;
+        }
+        try {
+            jdbc.update(ENSURE_ROW_PORTABLE, municipality, date, slot.name(), municipality, date, slot.name());
+        } catch (DuplicateKeyException e) {
+            // inserted concurrently -- the row is there now, which is all we need
+        }
+    }
+}
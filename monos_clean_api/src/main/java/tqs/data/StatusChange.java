@@ -0,0 +1,7 @@
+package tqs.data;
+
+import java.time.LocalDateTime;
+
+// one booking moving from one status to another, as written by the bulk jdbc paths
+public record StatusChange(long bookingId, Status from, Status to, LocalDateTime at) {
+}
@@ -5,7 +5,9 @@ import java.time.LocalDateTime;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "booking_status_history")
+@Table(name = "booking_status_history", indexes = {
+        @Index(name = "idx_status_history_booking", columnList = "booking_id, timestamp")
+})
 public class StatusHistory {
 
     @Id
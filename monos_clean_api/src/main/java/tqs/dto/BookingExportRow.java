@@ -0,0 +1,21 @@
+package tqs.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import tqs.data.Slot;
+import tqs.data.Status;
+
+// flat export line -- no status history, so rows can be written one at a time
+public record BookingExportRow(
+        String token,
+        String municipality,
+        String description,
+        LocalDate collectionDate,
+        Slot timeSlot,
+        Status status,
+        String contactInfo,
+        String address,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt) {
+}
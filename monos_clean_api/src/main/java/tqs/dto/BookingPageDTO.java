@@ -0,0 +1,24 @@
+package tqs.dto;
+
+import java.util.List;
+
+// one page of a staff listing -- nextCursor is the id to pass as "after" for the next
+// page, null once there is nothing left
+public class BookingPageDTO {
+
+    private List<BookingResponseDTO> items;
+    private Long nextCursor;
+
+    public BookingPageDTO(List<BookingResponseDTO> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<BookingResponseDTO> getItems() {
+        return items;
+    }
+
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+}
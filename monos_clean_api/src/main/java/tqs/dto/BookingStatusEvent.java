@@ -0,0 +1,13 @@
+package tqs.dto;
+
+import java.time.LocalDateTime;
+
+import tqs.data.Status;
+
+// published when a booking changes status, pushed to event stream subscribers after commit
+public record BookingStatusEvent(
+        String token,
+        String municipality,
+        Status status,
+        LocalDateTime updatedAt) {
+}
@@ -0,0 +1,42 @@
+package tqs.dto;
+
+import tqs.data.Status;
+
+// outcome for one token of a bulk status update
+public class BulkStatusResultDTO {
+
+    public enum Outcome {
+        UPDATED,
+        NOT_FOUND,
+        INVALID_TRANSITION,
+        CONFLICT
+    }
+
+    private String token;
+    private Outcome outcome;
+    private Status status; // status after the call
+    private String message;
+
+    public BulkStatusResultDTO(String token, Outcome outcome, Status status, String message) {
+        this.token = token;
+        this.outcome = outcome;
+        this.status = status;
+        this.message = message;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,34 @@
+package tqs.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import tqs.data.Status;
+
+public class BulkStatusUpdateDTO {
+
+    @NotEmpty(message = "At least one token is required")
+    @Size(max = 500, message = "At most 500 bookings can be updated at once")
+    private List<String> tokens;
+
+    @NotNull(message = "New status is mandatory")
+    private Status newStatus;
+
+    public List<String> getTokens() {
+        return tokens;
+    }
+
+    public void setTokens(List<String> tokens) {
+        this.tokens = tokens;
+    }
+
+    public Status getNewStatus() {
+        return newStatus;
+    }
+
+    public void setNewStatus(Status newStatus) {
+        this.newStatus = newStatus;
+    }
+}
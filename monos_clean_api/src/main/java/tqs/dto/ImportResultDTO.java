@@ -0,0 +1,41 @@
+package tqs.dto;
+
+// outcome for one row of a bulk import -- row numbers start at 1 and do not count a csv header
+public class ImportResultDTO {
+
+    private int row;
+    private boolean accepted;
+    private String token;
+    private String message;
+
+    public ImportResultDTO(int row, boolean accepted, String token, String message) {
+        this.row = row;
+        this.accepted = accepted;
+        this.token = token;
+        this.message = message;
+    }
+
+    public static ImportResultDTO accepted(int row, String token) {
+        return new ImportResultDTO(row, true, token, null);
+    }
+
+    public static ImportResultDTO rejected(int row, String message) {
+        return new ImportResultDTO(row, false, null, message);
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,17 @@
+package tqs.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import tqs.data.Slot;
+
+// places left in every slot of the bookable window for one municipality, today first
+public record SlotAvailabilityDTO(
+        String municipality,
+        int capacity,
+        List<Day> days) {
+
+    public record Day(LocalDate date, Map<Slot, Integer> remaining) {
+    }
+}
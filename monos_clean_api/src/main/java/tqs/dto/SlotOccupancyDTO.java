@@ -0,0 +1,14 @@
+package tqs.dto;
+
+import java.time.LocalDate;
+
+import tqs.data.Slot;
+
+// one slot of one day for the staff occupancy view -- slots with no bookings are left out
+public record SlotOccupancyDTO(
+        String municipality,
+        LocalDate date,
+        Slot slot,
+        int booked,
+        int capacity) {
+}
@@ -0,0 +1,108 @@
+package tqs.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tqs.data.BookingArchiveRepo;
+import tqs.data.BookingRequest;
+
+// nightly move of terminal bookings into the archive tables, so staff queries on the live
+// tables only pay for work that can still change. the archive needs postgres -- the h2
+// test and e2e profiles switch it off
+@Service
+public class BookingArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingArchiveService.class);
+
+    private final BookingArchiveRepo archiveRepo;
+    private final TransactionTemplate transactions;
+    private final boolean enabled;
+    private final Duration keepFor;
+    private final int batchSize;
+    private final AtomicLong archived = new AtomicLong();
+
+    @Autowired
+    public BookingArchiveService(BookingArchiveRepo archiveRepo, TransactionTemplate transactions,
+            @Value("${bookings.archive.enabled:true}") boolean enabled,
+            @Value("${bookings.archive.keep-for:30d}") Duration keepFor,
+            @Value("${bookings.archive.batch-size:500}") int batchSize) {
+        this.archiveRepo = archiveRepo;
+        this.transactions = transactions;
+        this.enabled = enabled;
+        this.keepFor = keepFor;
+        this.batchSize = batchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // a booking is archived once it has been terminal for keep-for and its collection date
+    // has passed, so the slot ledger never counts a row that is no longer in the live table
+    @Scheduled(cron = "${bookings.archive.cron:0 30 3 * * *}")
+    public int archiveTerminalBookings() {
+        if (!enabled) {
+            return 0;
+        }
+        LocalDateTime terminalBefore = LocalDateTime.now().minus(keepFor);
+        LocalDate collectedBefore = LocalDate.now();
+        int total = 0;
+        int moved;
+        // one transaction per batch keeps row locks and wal per commit bounded
+        do {
+            moved = transactions.execute(status -> archiveBatch(terminalBefore, collectedBefore));
+            total += moved;
+        } while (moved == batchSize);
+        archived.addAndGet(total);
+        logger.info("Archived {} terminal bookings", total);
+        return total;
+    }
+
+    private int archiveBatch(LocalDateTime terminalBefore, LocalDate collectedBefore) {
+        List<Long> ids = archiveRepo.lockArchivable(terminalBefore, collectedBefore, batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        archiveRepo.ensurePartitions(ids);
+        return archiveRepo.moveToArchive(ids);
+    }
+
+    public Optional<BookingRequest> findByToken(String token) {
+        return enabled ? archiveRepo.findByToken(token) : Optional.empty();
+    }
+
+    // the reads below back the staff listings and the export, which cover archived bookings
+    // too -- `after` is an id cursor like on the live table, null for the start
+    public List<BookingRequest> findByCollectionDateBetween(LocalDate start, LocalDate end, Long after, int limit) {
+        return enabled ? archiveRepo.findByCollectionDateBetween(start, end, after == null ? 0 : after, limit)
+                : List.of();
+    }
+
+    public List<BookingRequest> findByMunicipalityAndCollectionDate(String municipality, LocalDate date, Long after,
+            int limit) {
+        return enabled
+                ? archiveRepo.findByMunicipalityAndCollectionDate(municipality, date, after == null ? 0 : after, limit)
+                : List.of();
+    }
+
+    public Stream<BookingRequest> streamByCollectionDateBetween(LocalDate start, LocalDate end) {
+        return enabled ? archiveRepo.streamByCollectionDateBetween(start, end) : Stream.empty();
+    }
+
+    public long getArchived() {
+        return archived.get();
+    }
+}
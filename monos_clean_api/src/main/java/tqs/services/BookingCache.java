@@ -0,0 +1,124 @@
+package tqs.services;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import tqs.dto.BookingResponseDTO;
+
+// token -> response cache for the citizen status page, which is polled repeatedly.
+// bounded lru with a ttl on each entry; the service drops a token whenever its booking changes
+@Component
+public class BookingCache {
+
+    private record Entry(BookingResponseDTO booking, long expiresAt) {
+    }
+
+    private final int maxSize;
+    private final long ttlMs;
+    private final LongSupplier clock;
+
+    // access-ordered, so the eldest entry is the least recently read
+    private final LinkedHashMap<String, Entry> entries;
+
+    // per-token generations, bumped by each invalidation of a token. striped by hash so the
+    // array stays bounded -- two tokens sharing a stripe only cost each other a cache fill
+    private static final int GENERATION_STRIPES = 1024;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public BookingCache(@Value("${bookings.cache.max-size:10000}") int maxSize,
+            @Value("${bookings.cache.ttl:5m}") Duration ttl) {
+        this(maxSize, ttl, System::currentTimeMillis);
+    }
+
+    public BookingCache(int maxSize, Duration ttl, LongSupplier clock) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlMs = ttl.toMillis();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > BookingCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // null on a miss or an expired entry
+    public synchronized BookingResponseDTO get(String token) {
+        Entry entry = entries.get(token);
+        if (entry != null && entry.expiresAt() <= clock.getAsLong()) {
+            entries.remove(token);
+            evictions.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.booking();
+    }
+
+    public synchronized void put(String token, BookingResponseDTO booking) {
+        entries.put(token, new Entry(booking, clock.getAsLong() + ttlMs));
+    }
+
+    // taken before loading a booking and handed back to put below
+    public long generation(String token) {
+        return generations.get(stripe(token));
+    }
+
+    // only caches the booking if the token was not invalidated since the generation was taken --
+    // a load that raced an update may hold the old status and must not outlive the update
+    public boolean put(String token, BookingResponseDTO booking, long loadedAt) {
+        synchronized (this) {
+            if (generations.get(stripe(token)) != loadedAt) {
+                return false;
+            }
+            put(token, booking);
+            return true;
+        }
+    }
+
+    public synchronized void invalidate(String token) {
+        entries.remove(token);
+        generations.incrementAndGet(stripe(token));
+    }
+
+    private static int stripe(String token) {
+        int h = token.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+}
@@ -0,0 +1,198 @@
+package tqs.services;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import tqs.data.Status;
+import tqs.dto.BookingResponseDTO;
+import tqs.dto.BookingStatusEvent;
+
+// server-sent events for status changes -- one stream per token for citizens and one
+// feed of everything for staff. idle subscribers are parked async requests, no thread each
+@Component
+public class BookingEventBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingEventBroadcaster.class);
+
+    static final String EVENT_NAME = "status";
+
+    private final Map<String, Set<Subscriber>> byToken = new ConcurrentHashMap<>();
+    private final Set<Subscriber> staff = new CopyOnWriteArraySet<>();
+    private final Executor sendExecutor;
+    private final long timeoutMs;
+
+    @Autowired
+    public BookingEventBroadcaster(@Qualifier("applicationTaskExecutor") Executor sendExecutor,
+            @Value("${bookings.events.timeout:30m}") Duration timeout) {
+        this.sendExecutor = sendExecutor;
+        this.timeoutMs = timeout.toMillis();
+    }
+
+    // registered before the booking is read, so a change committed in between is either in
+    // the state read or arrives as an event -- the lookup must not be served from a cache
+    public SseEmitter subscribe(String token, Function<String, BookingResponseDTO> lookup) {
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMs), true);
+        byToken.compute(token, (t, subscribers) -> {
+            Set<Subscriber> set = subscribers != null ? subscribers : new CopyOnWriteArraySet<>();
+            set.add(subscriber);
+            return set;
+        });
+        Runnable remove = () -> removeTokenSubscriber(token, subscriber);
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        BookingResponseDTO current;
+        try {
+            current = lookup.apply(token);
+        } catch (RuntimeException e) {
+            remove.run();
+            throw e;
+        }
+        subscriber.enqueue(new BookingStatusEvent(token, current.getMunicipality(), current.getStatus(),
+                current.getUpdatedAt() != null ? current.getUpdatedAt() : current.getCreatedAt()));
+        return emitter;
+    }
+
+    public SseEmitter subscribeAll() {
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMs), false);
+        staff.add(subscriber);
+        SseEmitter emitter = subscriber.emitter;
+        emitter.onCompletion(() -> staff.remove(subscriber));
+        emitter.onTimeout(() -> staff.remove(subscriber));
+        emitter.onError(e -> staff.remove(subscriber));
+        return emitter;
+    }
+
+    // after commit only -- subscribers must never see a change that was rolled back.
+    // sending happens off the request thread so a slow client cannot hold up the update
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChange(BookingStatusEvent event) {
+        broadcast(event);
+    }
+
+    void broadcast(BookingStatusEvent event) {
+        Set<Subscriber> subscribers = byToken.get(event.token());
+        if (subscribers != null) {
+            subscribers.forEach(subscriber -> subscriber.enqueue(event));
+        }
+        staff.forEach(subscriber -> subscriber.enqueue(event));
+    }
+
+    public int getSubscriberCount() {
+        return staff.size() + byToken.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private boolean send(SseEmitter emitter, BookingStatusEvent event) {
+        try {
+            emitter.send(SseEmitter.event().name(EVENT_NAME).data(event));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // client went away -- the completion callback drops it
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void removeTokenSubscriber(String token, Subscriber subscriber) {
+        byToken.computeIfPresent(token, (t, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        });
+    }
+
+    // nothing follows a completed or cancelled booking
+    private static boolean isFinal(Status status) {
+        return status == Status.COMPLETED || status == Status.CANCELLED;
+    }
+
+    // one open stream. its events queue up and at most one task sends them at a time, so
+    // they go out in order even though every task runs on a thread of its own
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final boolean singleBooking;
+        private final Queue<BookingStatusEvent> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        // only touched by the draining task, handed over through the flag above
+        private LocalDateTime lastSent;
+        private boolean finished;
+
+        private Subscriber(SseEmitter emitter, boolean singleBooking) {
+            this.emitter = emitter;
+            this.singleBooking = singleBooking;
+        }
+
+        void enqueue(BookingStatusEvent event) {
+            pending.add(event);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sendExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                pending.clear();
+                draining.set(false);
+                logger.warn("Dropped status events for a subscriber, executor is saturated");
+            }
+        }
+
+        private void drain() {
+            BookingStatusEvent event;
+            while ((event = pending.poll()) != null) {
+                deliver(event);
+            }
+            draining.set(false);
+            // something queued after the last poll but before the flag was cleared
+            if (!pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        // a booking stream skips anything not newer than what it already sent -- the state
+        // read at subscription may already include an event queued ahead of it
+        private void deliver(BookingStatusEvent event) {
+            if (finished) {
+                return;
+            }
+            if (singleBooking) {
+                if (lastSent != null && event.updatedAt() != null && !event.updatedAt().isAfter(lastSent)) {
+                    return;
+                }
+                lastSent = event.updatedAt();
+            }
+            if (!send(emitter, event)) {
+                finished = true;
+            } else if (singleBooking && isFinal(event.status())) {
+                finished = true;
+                emitter.complete();
+            }
+        }
+    }
+}
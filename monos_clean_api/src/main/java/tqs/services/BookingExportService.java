@@ -0,0 +1,142 @@
+package tqs.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import tqs.data.BookingRequest;
+import tqs.data.BookingRequestRepo;
+import tqs.dto.BookingExportRow;
+import tqs.exceptions.InvalidBookingException;
+
+// writes bookings straight from a database cursor to the response -- every entity is
+// detached once written, so memory stays flat whatever the size of the range
+@Service
+public class BookingExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingExportService.class);
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    static final String CSV_HEADER = "token,municipality,description,collectionDate,timeSlot,status,"
+            + "contactInfo,address,createdAt,updatedAt";
+
+    private final BookingRequestRepo repo;
+    private final BookingArchiveService archive;
+    private final EntityManager entityManager;
+    private final ObjectWriter rowWriter;
+
+    @Autowired
+    public BookingExportService(BookingRequestRepo repo, BookingArchiveService archive, EntityManager entityManager,
+            ObjectMapper mapper) {
+        this.repo = repo;
+        this.archive = archive;
+        this.entityManager = entityManager;
+        this.rowWriter = mapper.writerFor(BookingExportRow.class);
+    }
+
+    // called before the response is committed, so a bad range is still a plain 400
+    public void validateRange(LocalDate start, LocalDate end) {
+        if (start == null || end == null || end.isBefore(start)) {
+            throw new InvalidBookingException("Export range end must not be before its start");
+        }
+    }
+
+    @Transactional
+    public long export(LocalDate start, LocalDate end, Format format, OutputStream out) throws IOException {
+        validateRange(start, end);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long written = 0;
+
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        // live bookings first, then those the archiver has already moved out of the range
+        try (Stream<BookingRequest> bookings = repo.streamByCollectionDateBetween(start, end)) {
+            written += writeRows(bookings, format, writer);
+        }
+        try (Stream<BookingRequest> archived = archive.streamByCollectionDateBetween(start, end)) {
+            written += writeRows(archived, format, writer);
+        }
+
+        writer.flush();
+        logger.info("Exported {} bookings between {} and {} as {}", written, start, end, format);
+        return written;
+    }
+
+    private long writeRows(Stream<BookingRequest> bookings, Format format, Writer writer) throws IOException {
+        long written = 0;
+        Iterator<BookingRequest> it = bookings.iterator();
+        while (it.hasNext()) {
+            BookingRequest booking = it.next();
+            BookingExportRow row = toRow(booking);
+            entityManager.detach(booking);
+
+            if (format == Format.CSV) {
+                writeCsv(writer, row);
+            } else {
+                writer.write(rowWriter.writeValueAsString(row));
+            }
+            writer.write('\n');
+            written++;
+        }
+        return written;
+    }
+
+    private BookingExportRow toRow(BookingRequest booking) {
+        return new BookingExportRow(
+                booking.getToken(),
+                booking.getMunicipality(),
+                booking.getDescription(),
+                booking.getCollectionDate(),
+                booking.getTimeSlot(),
+                booking.getStatus(),
+                booking.getContactInfo(),
+                booking.getAddress(),
+                booking.getCreatedAt(),
+                booking.getUpdatedAt());
+    }
+
+    private void writeCsv(Writer writer, BookingExportRow row) throws IOException {
+        Object[] values = { row.token(), row.municipality(), row.description(), row.collectionDate(),
+                row.timeSlot(), row.status(), row.contactInfo(), row.address(), row.createdAt(),
+                row.updatedAt() };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] != null) {
+                writer.write(csvField(values[i].toString()));
+            }
+        }
+    }
+
+    // rfc 4180 quoting -- description and address are free text
+    static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,343 @@
+package tqs.services;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import jakarta.transaction.Transactional;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import tqs.data.BookingJdbcRepo;
+import tqs.data.BookingRequest;
+import tqs.data.BookingRequestRepo;
+import tqs.data.Slot;
+import tqs.data.SlotOccupancyRepo;
+import tqs.dto.BookingRequestDTO;
+import tqs.dto.ImportResultDTO;
+import tqs.exceptions.InvalidBookingException;
+import tqs.services.SlotCapacityLedger.SlotKey;
+
+// bulk import for bookings taken over the phone -- every row goes through the same checks
+// as a single booking, but the inserts go out as one jdbc batch
+@Service
+public class BookingImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingImportService.class);
+
+    public static final int MAX_ROWS = 1000;
+
+    static final List<String> CSV_COLUMNS = List.of("municipality", "description", "collectionDate", "timeSlot",
+            "contactInfo", "address");
+
+    private final MunicipalityService municipalityService;
+    private final BookingRequestRepo repo;
+    private final BookingJdbcRepo jdbcRepo;
+    private final SlotCapacityLedger ledger;
+    private final SlotOccupancyRepo occupancy;
+    private final TokenGenerator tokenGenerator;
+    private final Validator validator;
+
+    @Autowired
+    public BookingImportService(MunicipalityService municipalityService, BookingRequestRepo repo, BookingJdbcRepo jdbcRepo,
+            SlotCapacityLedger ledger, SlotOccupancyRepo occupancy, TokenGenerator tokenGenerator,
+            Validator validator) {
+        this.municipalityService = municipalityService;
+        this.repo = repo;
+        this.jdbcRepo = jdbcRepo;
+        this.ledger = ledger;
+        this.occupancy = occupancy;
+        this.tokenGenerator = tokenGenerator;
+        this.validator = validator;
+    }
+
+    @Transactional
+    public List<ImportResultDTO> importBookings(List<BookingRequestDTO> requests) {
+        if (requests.size() > MAX_ROWS) {
+            throw new InvalidBookingException("At most " + MAX_ROWS + " bookings can be imported at once");
+        }
+        List<ImportResultDTO> results = new ArrayList<>(requests.size());
+        List<BookingRequest> accepted = new ArrayList<>();
+        List<Integer> acceptedRows = new ArrayList<>();
+
+        // validation and capacity in memory -- the ledger already holds every slot count
+        // of the booking window, so rows are reserved one by one with no count queries
+        for (int i = 0; i < requests.size(); i++) {
+            BookingRequestDTO request = requests.get(i);
+            String problem = validate(request);
+            if (problem != null) {
+                results.add(ImportResultDTO.rejected(i + 1, problem));
+                continue;
+            }
+            if (!ledger.tryReserve(request.getMunicipality(), request.getCollectionDate(), request.getTimeSlot(),
+                    BookingServiceImpl.MAX_CAPACITY_PER_SLOT)) {
+                results.add(ImportResultDTO.rejected(i + 1, noCapacity(request.getMunicipality())));
+                continue;
+            }
+            accepted.add(new BookingRequest(request.getMunicipality(), request.getDescription(),
+                    request.getCollectionDate(), request.getTimeSlot(), request.getContactInfo(),
+                    request.getAddress()));
+            acceptedRows.add(i + 1);
+            results.add(null); // filled in once the token is known
+        }
+
+        boolean releasedOnRollback = false;
+        try {
+            // rows of slots that another instance filled in the meantime are rejected
+            // like those the ledger turned down
+            Set<Integer> noRoom = addOccupancy(accepted);
+            for (int i = accepted.size() - 1; i >= 0; i--) {
+                if (noRoom.contains(i)) {
+                    BookingRequest booking = accepted.remove(i);
+                    int row = acceptedRows.remove(i);
+                    ledger.release(booking.getMunicipality(), booking.getCollectionDate(), booking.getTimeSlot());
+                    results.set(row - 1, ImportResultDTO.rejected(row, noCapacity(booking.getMunicipality())));
+                }
+            }
+            // from here on a rollback, even one at commit, gives the places back
+            releasedOnRollback = ledger.releaseOnRollback(accepted.stream()
+                    .map(b -> new SlotKey(b.getMunicipality(), b.getCollectionDate(), b.getTimeSlot()))
+                    .toList());
+            assignUniqueTokens(accepted);
+            if (!accepted.isEmpty()) {
+                jdbcRepo.insertBookings(accepted);
+            }
+        } catch (RuntimeException e) {
+            if (!releasedOnRollback) {
+                accepted.forEach(b -> ledger.release(b.getMunicipality(), b.getCollectionDate(), b.getTimeSlot()));
+            }
+            throw e;
+        }
+
+        for (int i = 0; i < accepted.size(); i++) {
+            int row = acceptedRows.get(i);
+            results.set(row - 1, ImportResultDTO.accepted(row, accepted.get(i).getToken()));
+        }
+        logger.info("Imported {} of {} bookings", accepted.size(), requests.size());
+        return results;
+    }
+
+    // header row first, columns as in CSV_COLUMNS in any order. transactional itself, since
+    // the call to importBookings below does not go through the proxy
+    @Transactional
+    public List<ImportResultDTO> importCsv(Reader csv) throws IOException {
+        List<CsvRecord> records = parseCsv(csv);
+        if (records.isEmpty()) {
+            throw new InvalidBookingException("CSV is empty");
+        }
+        CsvRecord headerRecord = records.get(0);
+        List<String> header = headerRecord.fields().stream().map(String::trim).toList();
+        Map<String, Integer> columns = new HashMap<>();
+        for (String column : CSV_COLUMNS) {
+            int index = header.indexOf(column);
+            if (index < 0) {
+                throw new InvalidBookingException("CSV header is missing column " + column);
+            }
+            columns.put(column, index);
+        }
+
+        // rows are numbered by the line they start on, so they match the file even around blank
+        // lines, and every line after the header counts against the cap, readable or not
+        int lastRow = records.get(records.size() - 1).line() - headerRecord.line();
+        if (lastRow > MAX_ROWS) {
+            throw new InvalidBookingException("At most " + MAX_ROWS + " bookings can be imported at once");
+        }
+
+        // rows that cannot even be read are rejected here, the rest go through the normal import
+        List<BookingRequestDTO> readable = new ArrayList<>();
+        Map<Integer, String> unreadable = new HashMap<>();
+        for (CsvRecord record : records.subList(1, records.size())) {
+            try {
+                readable.add(toRequest(record.fields(), columns));
+            } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+                unreadable.put(record.line(), "Unreadable row: " + e.getMessage());
+            }
+        }
+
+        List<ImportResultDTO> imported = importBookings(readable);
+        List<ImportResultDTO> results = new ArrayList<>(records.size() - 1);
+        int next = 0;
+        for (CsvRecord record : records.subList(1, records.size())) {
+            int row = record.line() - headerRecord.line();
+            if (unreadable.containsKey(record.line())) {
+                results.add(ImportResultDTO.rejected(row, unreadable.get(record.line())));
+            } else {
+                ImportResultDTO result = imported.get(next++);
+                results.add(new ImportResultDTO(row, result.isAccepted(), result.getToken(), result.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private String validate(BookingRequestDTO request) {
+        if (request == null) {
+            return "Empty row";
+        }
+        Set<ConstraintViolation<BookingRequestDTO>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.iterator().next().getMessage();
+        }
+        // same rules as a single booking, checked here rather than through the booking service:
+        // a rejection thrown across its transactional proxy would mark this import rollback-only
+        String problem = BookingServiceImpl.bookingDateProblem(request.getCollectionDate());
+        if (problem != null) {
+            return problem;
+        }
+        if (!municipalityService.isValid(request.getMunicipality())) {
+            return BookingServiceImpl.invalidMunicipality(request.getMunicipality());
+        }
+        return null;
+    }
+
+    // one update per slot rather than per row, in SlotKey order. a slot that another instance
+    // filled in the meantime is retried row by row, so only the rows that no longer fit are
+    // left out -- returns their positions in the list
+    private Set<Integer> addOccupancy(List<BookingRequest> bookings) {
+        Map<SlotKey, List<Integer>> bySlot = new TreeMap<>();
+        for (int i = 0; i < bookings.size(); i++) {
+            BookingRequest booking = bookings.get(i);
+            SlotKey key = new SlotKey(booking.getMunicipality(), booking.getCollectionDate(), booking.getTimeSlot());
+            bySlot.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+        }
+        Set<Integer> noRoom = new HashSet<>();
+        for (Map.Entry<SlotKey, List<Integer>> entry : bySlot.entrySet()) {
+            SlotKey key = entry.getKey();
+            List<Integer> slot = entry.getValue();
+            if (occupancy.tryAdd(key.municipality(), key.date(), key.slot(), slot.size(),
+                    BookingServiceImpl.MAX_CAPACITY_PER_SLOT)) {
+                continue;
+            }
+            for (int n = 0; n < slot.size(); n++) {
+                if (!occupancy.tryAdd(key.municipality(), key.date(), key.slot(), 1,
+                        BookingServiceImpl.MAX_CAPACITY_PER_SLOT)) {
+                    noRoom.addAll(slot.subList(n, slot.size()));
+                    break;
+                }
+            }
+        }
+        return noRoom;
+    }
+
+    private static String noCapacity(String municipality) {
+        return "No capacity available for selected date and time slot for " + municipality;
+    }
+
+    // one query for the whole batch; only colliding tokens are drawn again
+    private void assignUniqueTokens(List<BookingRequest> bookings) {
+        List<BookingRequest> pending = bookings;
+        Set<String> taken = new HashSet<>();
+        for (int attempt = 0; attempt < 5 && !pending.isEmpty(); attempt++) {
+            Map<String, BookingRequest> byToken = new HashMap<>();
+            for (BookingRequest booking : pending) {
+                String token;
+                do {
+                    token = tokenGenerator.next();
+                } while (taken.contains(token) || byToken.containsKey(token));
+                booking.setToken(token);
+                byToken.put(token, booking);
+            }
+            List<BookingRequest> collided = new ArrayList<>();
+            for (BookingRequest existing : repo.findByTokenIn(byToken.keySet())) {
+                collided.add(byToken.get(existing.getToken()));
+            }
+            taken.addAll(byToken.keySet());
+            pending = collided;
+        }
+        if (!pending.isEmpty()) {
+            throw new IllegalStateException("Could not generate unique booking tokens");
+        }
+    }
+
+    private static BookingRequestDTO toRequest(List<String> record, Map<String, Integer> columns) {
+        BookingRequestDTO request = new BookingRequestDTO();
+        request.setMunicipality(blankToNull(record.get(columns.get("municipality"))));
+        request.setDescription(blankToNull(record.get(columns.get("description"))));
+        String date = blankToNull(record.get(columns.get("collectionDate")));
+        request.setCollectionDate(date == null ? null : LocalDate.parse(date.trim()));
+        String slot = blankToNull(record.get(columns.get("timeSlot")));
+        request.setTimeSlot(slot == null ? null : Slot.valueOf(slot.trim().toUpperCase()));
+        request.setContactInfo(blankToNull(record.get(columns.get("contactInfo"))));
+        request.setAddress(blankToNull(record.get(columns.get("address"))));
+        return request;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    // one csv record and the 1-based line of the file it starts on
+    record CsvRecord(int line, List<String> fields) {
+    }
+
+    // rfc 4180: quoted fields may hold commas, quotes ("") and line breaks. blank lines are
+    // left out but still counted, so the line numbers stay those of the file
+    static List<CsvRecord> parseCsv(Reader in) throws IOException {
+        List<CsvRecord> records = new ArrayList<>();
+        List<String> record = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean sawAny = false;
+        int line = 1;
+        int recordLine = 1;
+        int c;
+        while ((c = in.read()) != -1) {
+            sawAny = true;
+            if (quoted) {
+                if (c == '"') {
+                    in.mark(1);
+                    int next = in.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next == -1) {
+                            break;
+                        }
+                        in.reset();
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                record.add(field.toString());
+                field.setLength(0);
+                addIfNotBlank(records, recordLine, record);
+                record = new ArrayList<>();
+                recordLine = ++line;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+        if (sawAny) {
+            record.add(field.toString());
+            addIfNotBlank(records, recordLine, record);
+        }
+        return records;
+    }
+
+    private static void addIfNotBlank(List<CsvRecord> records, int line, List<String> record) {
+        if (record.size() > 1 || !record.get(0).isBlank()) {
+            records.add(new CsvRecord(line, record));
+        }
+    }
+}
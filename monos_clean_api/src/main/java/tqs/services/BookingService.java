@@ -12,17 +12,37 @@ public interface BookingService {
 
     public BookingResponseDTO getBookingByToken(String token);
 
+    // straight from the db, for callers that must see the latest commit
+    public BookingResponseDTO getBookingByTokenUncached(String token);
+
     public void cancelBookingByToken(String token);
 
     // staff only
     public BookingResponseDTO updateBookingStatus(String token, Status newStatus);
 
+    // one result per distinct token, in the order given
+    public List<BulkStatusResultDTO> updateBookingStatuses(List<String> tokens, Status newStatus);
+
     public List<BookingResponseDTO> getBookingsByMunicipalityByDate(String municipality, LocalDate date);
 
     public List<BookingResponseDTO> getBookingsByStatus(Status status);
 
     public List<BookingResponseDTO> getBookingsByDateRange(LocalDate start, LocalDate end);
 
+    // paged versions -- offset paging by page/size, or keyset paging when after is set
+    public BookingPageDTO getBookingsByMunicipalityByDate(String municipality, LocalDate date, int page, int size,
+            Long after);
+
+    public BookingPageDTO getBookingsByStatus(Status status, int page, int size, Long after);
+
+    public BookingPageDTO getBookingsByDateRange(LocalDate start, LocalDate end, int page, int size, Long after);
+
+    // non-cancelled bookings per slot, from the slot_occupancy counters
+    public List<SlotOccupancyDTO> getOccupancy(LocalDate from, LocalDate to);
+
+    // citizen view of the places left per slot, from today to the end of the bookable window
+    public SlotAvailabilityDTO getAvailability(String municipality);
+
     // validation
     public void validateBookingDate(LocalDate date);
 
@@ -1,24 +1,55 @@
 package tqs.services;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.transaction.Transactional;
+import tqs.data.BookingJdbcRepo;
 import tqs.data.BookingRequest;
 import tqs.data.BookingRequestRepo;
 import tqs.data.Slot;
+import tqs.data.SlotOccupancyRepo;
 import tqs.data.Status;
+import tqs.data.StatusChange;
+import tqs.dto.BookingPageDTO;
 import tqs.dto.BookingRequestDTO;
 import tqs.dto.BookingResponseDTO;
+import tqs.dto.BookingStatusEvent;
+import tqs.dto.SlotAvailabilityDTO;
+import tqs.dto.SlotOccupancyDTO;
 import tqs.dto.StatusHistoryDTO;
+import tqs.dto.BulkStatusResultDTO;
+import tqs.dto.BulkStatusResultDTO.Outcome;
 import tqs.exceptions.InvalidBookingException;
+import tqs.services.SlotCapacityLedger.SlotKey;
 
 @Service
 @Transactional
@@ -26,58 +57,174 @@ public class BookingServiceImpl implements BookingService {
 
     private static final Logger logger = LoggerFactory.getLogger(BookingServiceImpl.class);
 
-    private static final int MAX_CAPACITY_PER_SLOT = 15;
+    public static final int MAX_CAPACITY_PER_SLOT = 15;
+
+    // matches the history batch size, so a page loads its history in one query
+    public static final int MAX_PAGE_SIZE = 100;
 
     private BookingRequestRepo repo;
+    private BookingJdbcRepo jdbcRepo;
     private MunicipalityService municipalityService;
+    private SlotCapacityLedger ledger;
+    private SlotOccupancyRepo occupancy;
+    private TokenGenerator tokenGenerator;
+    private BookingCache cache;
+    private ApplicationEventPublisher events;
+    private BookingArchiveService archive;
+
+    // tags are fixed enums only (stage, source, status) -- never tokens or municipalities
+    private final Timer validationTimer;
+    private final Timer capacityTimer;
+    private final Timer insertTimer;
+    private final Timer cacheLookupTimer;
+    private final Timer dbLookupTimer;
+    private final Map<Status, Timer> statusUpdateTimers = new EnumMap<>(Status.class);
+    private final Counter rejectedInvalid;
+    private final Counter rejectedFull;
 
     private static final String ERROR_NO_BOOKING_FOUND = "No booking found under token: %s"; // for sonar issue on
                                                                                              // repeating the same error
                                                                                              // over and over
 
     @Autowired
-    public BookingServiceImpl(BookingRequestRepo repo, MunicipalityService municipalityService) {
+    public BookingServiceImpl(BookingRequestRepo repo, BookingJdbcRepo jdbcRepo,
+            MunicipalityService municipalityService, SlotCapacityLedger ledger, SlotOccupancyRepo occupancy,
+            TokenGenerator tokenGenerator,
+            BookingCache cache, ApplicationEventPublisher events, BookingArchiveService archive,
+            MeterRegistry meterRegistry) {
         this.repo = repo;
+        this.jdbcRepo = jdbcRepo;
         this.municipalityService = municipalityService;
+        this.ledger = ledger;
+        this.occupancy = occupancy;
+        this.tokenGenerator = tokenGenerator;
+        this.cache = cache;
+        this.events = events;
+        this.archive = archive;
+
+        this.validationTimer = createStageTimer("validation", meterRegistry);
+        this.capacityTimer = createStageTimer("capacity", meterRegistry);
+        this.insertTimer = createStageTimer("insert", meterRegistry);
+        this.cacheLookupTimer = lookupTimer("cache", meterRegistry);
+        this.dbLookupTimer = lookupTimer("db", meterRegistry);
+        for (Status status : Status.values()) {
+            statusUpdateTimers.put(status, Timer.builder("booking.status.update")
+                    .description("Time to move a single booking to a new status")
+                    .tag("status", status.name())
+                    .register(meterRegistry));
+        }
+        this.rejectedInvalid = rejectedCounter("invalid", meterRegistry);
+        this.rejectedFull = rejectedCounter("full", meterRegistry);
+    }
+
+    private static Timer createStageTimer(String stage, MeterRegistry registry) {
+        return Timer.builder("booking.create")
+                .description("Time spent in each stage of creating a booking")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    private static Timer lookupTimer(String source, MeterRegistry registry) {
+        return Timer.builder("booking.lookup")
+                .description("Citizen token lookups, by where the answer came from")
+                .tag("source", source)
+                .register(registry);
+    }
+
+    private static Counter rejectedCounter(String reason, MeterRegistry registry) {
+        return Counter.builder("booking.create.rejected")
+                .description("Bookings refused before anything was written")
+                .tag("reason", reason)
+                .register(registry);
     }
 
     @Override
     public BookingResponseDTO createBooking(BookingRequestDTO request) {
         // validate input
-        validateBookingDate(request.getCollectionDate());
-        validateMunicipality(request.getMunicipality());
+        Timer.Sample stage = Timer.start();
+        try {
+            validateBookingDate(request.getCollectionDate());
+            validateMunicipality(request.getMunicipality());
+        } catch (InvalidBookingException e) {
+            rejectedInvalid.increment();
+            throw e;
+        } finally {
+            stage.stop(validationTimer);
+        }
 
-        // check capacity
-        if (!hasCapacity(request.getMunicipality(), request.getCollectionDate(), request.getTimeSlot())) {
+        // reserve a place in the slot -- check and reservation are a single atomic step
+        String municipality = request.getMunicipality();
+        LocalDate date = request.getCollectionDate();
+        Slot slot = request.getTimeSlot();
+        stage = Timer.start();
+        boolean reserved = reserveCapacity(municipality, date, slot);
+        stage.stop(capacityTimer);
+        if (!reserved) {
+            rejectedFull.increment();
             throw new InvalidBookingException(
-                    "No capacity available for selected date and time slot for " + request.getMunicipality());
+                    "No capacity available for selected date and time slot for " + municipality);
         }
 
         // unmarshall dto to booking object
-        BookingRequest booking = new BookingRequest(request.getMunicipality(), request.getDescription(),
-                request.getCollectionDate(), request.getTimeSlot(), request.getContactInfo(), request.getAddress());
-
-        // get unique token
-        String token = generateToken();
-        booking.setToken(token);
-
-        // save to repo
-        repo.save(booking);
-        logger.info("Booking created with token: " + token);
+        BookingRequest booking = new BookingRequest(municipality, request.getDescription(), date, slot,
+                request.getContactInfo(), request.getAddress());
+
+        // count the place in slot_occupancy, then insert with a unique token -- the place
+        // goes back if the transaction rolls back. the occupancy update is also the capacity
+        // check across app instances, each of which only sees its own ledger
+        boolean releasedOnRollback = ledger.releaseOnRollback(municipality, date, slot);
+        stage = Timer.start();
+        try {
+            if (!occupancy.tryAdd(municipality, date, slot, 1, MAX_CAPACITY_PER_SLOT)) {
+                throw new InvalidBookingException(
+                        "No capacity available for selected date and time slot for " + municipality);
+            }
+            insertWithUniqueToken(booking);
+        } catch (RuntimeException e) {
+            if (!releasedOnRollback) {
+                ledger.release(municipality, date, slot);
+            }
+            throw e;
+        } finally {
+            stage.stop(insertTimer);
+        }
+        logger.info("Booking created with token: " + booking.getToken());
 
         return toResponseDTO(booking);
     }
 
     @Override
     public BookingResponseDTO getBookingByToken(String token) {
+        Timer.Sample sample = Timer.start();
+        BookingResponseDTO cached = cache.get(token);
+        if (cached != null) {
+            sample.stop(cacheLookupTimer);
+            return cached;
+        }
+        try {
+            long generation = cache.generation(token);
+            BookingResponseDTO dto = getBookingByTokenUncached(token);
+            cache.put(token, dto, generation);
+            return dto;
+        } finally {
+            sample.stop(dbLookupTimer);
+        }
+    }
+
+    @Override
+    public BookingResponseDTO getBookingByTokenUncached(String token) {
+        // old finished bookings only exist in the archive
         BookingRequest booking = repo.findByToken(token)
+                .or(() -> archive.findByToken(token))
                 .orElseThrow(() -> new InvalidBookingException(String.format(ERROR_NO_BOOKING_FOUND, token)));
         return toResponseDTO(booking);
     }
 
     @Override
     public void cancelBookingByToken(String token) {
+        // an archived booking is always terminal, so it is turned down below like any other
         BookingRequest booking = repo.findByToken(token)
+                .or(() -> archive.findByToken(token))
                 .orElseThrow(() -> new InvalidBookingException(String.format(ERROR_NO_BOOKING_FOUND, token)));
 
         if (!booking.getStatus().canTransition(Status.CANCELLED)) {
@@ -86,6 +233,10 @@ public class BookingServiceImpl implements BookingService {
 
         booking.addStatusHistory(Status.CANCELLED);
         repo.save(booking);
+        occupancy.remove(booking.getMunicipality(), booking.getCollectionDate(), booking.getTimeSlot());
+        evictFromCache(token);
+        publishStatusChange(booking);
+        ledger.releaseAfterCommit(booking.getMunicipality(), booking.getCollectionDate(), booking.getTimeSlot());
 
         String safeToken = sanitizeForLog(token);
         logger.info("Booking under token {} was cancelled", safeToken);
@@ -93,7 +244,17 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     public BookingResponseDTO updateBookingStatus(String token, Status newStatus) {
+        Timer.Sample sample = Timer.start();
+        try {
+            return applyStatus(token, newStatus);
+        } finally {
+            sample.stop(statusUpdateTimers.get(newStatus));
+        }
+    }
+
+    private BookingResponseDTO applyStatus(String token, Status newStatus) {
         BookingRequest booking = repo.findByToken(token)
+                .or(() -> archive.findByToken(token))
                 .orElseThrow(() -> new InvalidBookingException(String.format(ERROR_NO_BOOKING_FOUND, token)));
 
         if (!booking.getStatus().canTransition(newStatus)) {
@@ -104,16 +265,129 @@ public class BookingServiceImpl implements BookingService {
 
         booking.addStatusHistory(newStatus);
         repo.save(booking);
+        if (newStatus == Status.CANCELLED) {
+            occupancy.remove(booking.getMunicipality(), booking.getCollectionDate(), booking.getTimeSlot());
+        }
+        evictFromCache(token);
+        publishStatusChange(booking);
+        if (newStatus == Status.CANCELLED) {
+            ledger.releaseAfterCommit(booking.getMunicipality(), booking.getCollectionDate(),
+                    booking.getTimeSlot());
+        }
 
         String safeToken = sanitizeForLog(token);
         logger.info("Booking under token {} was updated to status {}", safeToken, newStatus);
         return toResponseDTO(booking);
     }
 
+    // one select for all tokens, then the status updates and history rows as two jdbc
+    // batches in this transaction
+    @Override
+    public List<BulkStatusResultDTO> updateBookingStatuses(List<String> tokens, Status newStatus) {
+        Set<String> distinct = new LinkedHashSet<>(tokens);
+        Map<String, BulkStatusResultDTO> results = new HashMap<>();
+        Set<String> wellFormed = new LinkedHashSet<>();
+        for (String token : distinct) {
+            if (TokenFormat.isValid(token)) {
+                wellFormed.add(token);
+            } else {
+                results.put(token, new BulkStatusResultDTO(TokenFormat.sanitize(token), Outcome.NOT_FOUND, null,
+                        "No booking found"));
+            }
+        }
+
+        Map<String, BookingRequest> found = repo.findByTokenIn(wellFormed).stream()
+                .collect(Collectors.toMap(BookingRequest::getToken, Function.identity()));
+        LocalDateTime now = LocalDateTime.now();
+        List<BookingRequest> movable = new ArrayList<>();
+        for (String token : wellFormed) {
+            BookingRequest booking = found.get(token);
+            if (booking == null) {
+                results.put(token, new BulkStatusResultDTO(token, Outcome.NOT_FOUND, null, "No booking found"));
+            } else if (!booking.getStatus().canTransition(newStatus)) {
+                results.put(token, new BulkStatusResultDTO(token, Outcome.INVALID_TRANSITION, booking.getStatus(),
+                        String.format("Cannot update booking status %s to status %s", booking.getStatus(),
+                                newStatus)));
+            } else {
+                movable.add(booking);
+            }
+        }
+        // rows are locked in id order whatever the order of the request, so two bulk updates
+        // over overlapping bookings queue behind each other instead of deadlocking
+        movable.sort(Comparator.comparing(BookingRequest::getId));
+        List<StatusChange> changes = movable.stream()
+                .map(booking -> new StatusChange(booking.getId(), booking.getStatus(), newStatus, now))
+                .toList();
+
+        if (!changes.isEmpty()) {
+            int[] updated = jdbcRepo.updateStatuses(changes);
+            List<StatusChange> applied = new ArrayList<>();
+            for (int i = 0; i < changes.size(); i++) {
+                BookingRequest booking = movable.get(i);
+                // a 0 means a concurrent change got there first -- nothing was written for it
+                if (updated[i] == 0) {
+                    results.put(booking.getToken(), new BulkStatusResultDTO(booking.getToken(), Outcome.CONFLICT,
+                            null, "Booking was changed concurrently, reload and retry"));
+                    continue;
+                }
+                applied.add(changes.get(i));
+                results.put(booking.getToken(),
+                        new BulkStatusResultDTO(booking.getToken(), Outcome.UPDATED, newStatus, null));
+                evictFromCache(booking.getToken());
+                events.publishEvent(new BookingStatusEvent(booking.getToken(), booking.getMunicipality(), newStatus,
+                        now));
+                if (newStatus == Status.CANCELLED) {
+                    ledger.releaseAfterCommit(booking.getMunicipality(), booking.getCollectionDate(),
+                            booking.getTimeSlot());
+                }
+            }
+            if (!applied.isEmpty()) {
+                jdbcRepo.insertHistory(applied);
+            }
+            if (newStatus == Status.CANCELLED) {
+                releaseOccupancy(movable, applied);
+            }
+            logger.info("Bulk update to {}: {} of {} bookings moved", newStatus, applied.size(), distinct.size());
+        }
+
+        return distinct.stream().map(results::get).toList();
+    }
+
+    @Override
+    public List<SlotOccupancyDTO> getOccupancy(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new InvalidBookingException("Occupancy range end must not be before its start");
+        }
+        return occupancy.findBetween(from, to).stream()
+                .map(row -> new SlotOccupancyDTO(row.municipality(), row.collectionDate(), row.timeSlot(),
+                        row.booked(), MAX_CAPACITY_PER_SLOT))
+                .toList();
+    }
+
+    // read straight off the ledger counters, which every booking path keeps up to date --
+    // no db access, so the booking form can poll it freely
+    @Override
+    public SlotAvailabilityDTO getAvailability(String municipalityCode) {
+        validateMunicipality(municipalityCode);
+        // the ledger is keyed by the stored code, while validation accepts any case
+        String municipality = MunicipalityService.normalizeCode(municipalityCode);
+        LocalDate today = LocalDate.now();
+        List<SlotAvailabilityDTO.Day> days = new ArrayList<>(SlotCapacityLedger.WINDOW_DAYS + 1);
+        for (int offset = 0; offset <= SlotCapacityLedger.WINDOW_DAYS; offset++) {
+            LocalDate date = today.plusDays(offset);
+            Map<Slot, Integer> remaining = new EnumMap<>(Slot.class);
+            for (Slot slot : Slot.values()) {
+                remaining.put(slot, Math.max(0, MAX_CAPACITY_PER_SLOT - ledger.count(municipality, date, slot)));
+            }
+            days.add(new SlotAvailabilityDTO.Day(date, remaining));
+        }
+        return new SlotAvailabilityDTO(municipality, MAX_CAPACITY_PER_SLOT, days);
+    }
+
     @Override
     public List<BookingResponseDTO> getBookingsByMunicipalityByDate(String municipalityCode, LocalDate date) {
-        return repo.findByMunicipalityAndCollectionDate(municipalityCode, date)
-                .stream()
+        return Stream.concat(repo.findByMunicipalityAndCollectionDate(municipalityCode, date).stream(),
+                archive.findByMunicipalityAndCollectionDate(municipalityCode, date, null, Integer.MAX_VALUE).stream())
                 .map(this::toResponseDTO)
                 .toList();
     }
@@ -128,46 +402,176 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     public List<BookingResponseDTO> getBookingsByDateRange(LocalDate start, LocalDate end) {
-        return repo.findByCollectionDateBetween(start, end)
-                .stream()
+        return Stream.concat(repo.findByCollectionDateBetween(start, end).stream(),
+                archive.findByCollectionDateBetween(start, end, null, Integer.MAX_VALUE).stream())
                 .map(this::toResponseDTO)
                 .toList();
     }
 
+    @Override
+    public BookingPageDTO getBookingsByMunicipalityByDate(String municipalityCode, LocalDate date, int page,
+            int size, Long after) {
+        Pageable pageable = pageable(page, size, after);
+        List<BookingRequest> bookings = withArchived(pageable,
+                p -> after == null
+                        ? repo.findByMunicipalityAndCollectionDate(municipalityCode, date, p)
+                        : repo.findByMunicipalityAndCollectionDateAndIdGreaterThan(municipalityCode, date, after, p),
+                limit -> archive.findByMunicipalityAndCollectionDate(municipalityCode, date, after, limit));
+        return toPage(bookings, pageable);
+    }
+
+    @Override
+    public BookingPageDTO getBookingsByStatus(Status status, int page, int size, Long after) {
+        Pageable pageable = pageable(page, size, after);
+        List<BookingRequest> bookings = after == null
+                ? repo.findByStatus(status, pageable)
+                : repo.findByStatusAndIdGreaterThan(status, after, pageable);
+        return toPage(bookings, pageable);
+    }
+
+    @Override
+    public BookingPageDTO getBookingsByDateRange(LocalDate start, LocalDate end, int page, int size, Long after) {
+        Pageable pageable = pageable(page, size, after);
+        List<BookingRequest> bookings = withArchived(pageable,
+                p -> after == null
+                        ? repo.findByCollectionDateBetween(start, end, p)
+                        : repo.findByCollectionDateBetweenAndIdGreaterThan(start, end, after, p),
+                limit -> archive.findByCollectionDateBetween(start, end, after, limit));
+        return toPage(bookings, pageable);
+    }
+
     @Override
     public void validateBookingDate(LocalDate date) {
+        String problem = bookingDateProblem(date);
+        if (problem != null) {
+            throw new InvalidBookingException(problem);
+        }
+    }
+
+    // null when the date can be booked
+    static String bookingDateProblem(LocalDate date) {
         LocalDate today = LocalDate.now();
 
         if (date.isBefore(today)) {
-            throw new InvalidBookingException("Booking date cannot be in the past");
+            return "Booking date cannot be in the past";
         }
 
         // can only book 2 weeks ahead
-        if (date.isAfter(today.plusDays(14))) {
-            throw new InvalidBookingException("Can only book 2 weeks ahead");
+        if (date.isAfter(today.plusDays(SlotCapacityLedger.WINDOW_DAYS))) {
+            return "Can only book 2 weeks ahead";
         }
+        return null;
+    }
+
+    static String invalidMunicipality(String municipalityCode) {
+        return "Invalid municipality code: " + municipalityCode;
     }
 
     @Override
     public void validateMunicipality(String municipalityCode) {
         if (!this.municipalityService.isValid(municipalityCode)) {
-            throw new InvalidBookingException("Invalid municipality code: " + municipalityCode);
+            throw new InvalidBookingException(invalidMunicipality(municipalityCode));
         }
     }
 
     @Override
     public boolean hasCapacity(String municipality, LocalDate date, Slot slot) {
-        long count = repo.countByMunicipalityAndCollectionDateAndTimeSlot(municipality, date, slot);
+        // bookable dates are served from the in-memory ledger, anything else falls back to the db
+        long count = ledger.covers(date)
+                ? ledger.count(municipality, date, slot)
+                : repo.countByMunicipalityAndCollectionDateAndTimeSlotAndStatusNot(municipality, date, slot,
+                        Status.CANCELLED);
         return count < MAX_CAPACITY_PER_SLOT;
     }
 
     @Override
     public String generateToken() {
-        return UUID.randomUUID().toString().replace("-", "").substring(0, 20).toUpperCase();
+        return tokenGenerator.next();
     }
 
     // utils
-    private BookingResponseDTO toResponseDTO(BookingRequest booking) {
+    // the unique index on token is the check -- a repeat is astronomically unlikely (~103
+    // bits), so it gets one retry and no lookup up front. the insert runs under a savepoint,
+    // so the failed attempt does not take the transaction down with it
+    private void insertWithUniqueToken(BookingRequest booking) {
+        booking.setToken(generateToken());
+        try {
+            jdbcRepo.insertBooking(booking);
+        } catch (DuplicateKeyException e) {
+            logger.warn("Generated booking token collided with an existing one, retrying");
+            booking.setToken(generateToken());
+            jdbcRepo.insertBooking(booking);
+        }
+    }
+
+    // dropped now and again after commit, so a read that raced the update cannot
+    // leave the old status cached
+    private void evictFromCache(String token) {
+        cache.invalidate(token);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidate(token);
+                }
+            });
+        }
+    }
+
+    // delivered to event stream subscribers once the transaction commits
+    private void publishStatusChange(BookingRequest booking) {
+        events.publishEvent(new BookingStatusEvent(booking.getToken(), booking.getMunicipality(),
+                booking.getStatus(), booking.getUpdatedAt()));
+    }
+
+    // in key order, so two bulk cancels never wait on each other's slot rows
+    private void releaseOccupancy(List<BookingRequest> movable, List<StatusChange> applied) {
+        Set<Long> cancelled = applied.stream().map(StatusChange::bookingId).collect(Collectors.toSet());
+        movable.stream()
+                .filter(b -> cancelled.contains(b.getId()))
+                .map(b -> new SlotKey(b.getMunicipality(), b.getCollectionDate(), b.getTimeSlot()))
+                .sorted()
+                .forEach(key -> occupancy.remove(key.municipality(), key.date(), key.slot()));
+    }
+
+    private boolean reserveCapacity(String municipality, LocalDate date, Slot slot) {
+        if (ledger.covers(date)) {
+            return ledger.tryReserve(municipality, date, slot, MAX_CAPACITY_PER_SLOT);
+        }
+        return hasCapacity(municipality, date, slot);
+    }
+
+    // pages are always ordered by id so keyset cursors stay stable while rows are added
+    private static Pageable pageable(int page, int size, Long after) {
+        if (page < 0 || size < 1) {
+            throw new InvalidBookingException("Page must be 0 or more and size at least 1");
+        }
+        return PageRequest.of(after == null ? page : 0, Math.min(size, MAX_PAGE_SIZE), Sort.by("id"));
+    }
+
+    // archived bookings keep their ids, so a page over both tables is the page-sized id-ordered
+    // prefix of each side, merged. offset pages read every row before the page from both sides
+    private List<BookingRequest> withArchived(Pageable pageable, Function<Pageable, List<BookingRequest>> live,
+            IntFunction<List<BookingRequest>> archived) {
+        if (!archive.isEnabled()) {
+            return live.apply(pageable);
+        }
+        int upTo = (int) pageable.getOffset() + pageable.getPageSize();
+        List<BookingRequest> merged = new ArrayList<>(live.apply(PageRequest.of(0, upTo, pageable.getSort())));
+        merged.addAll(archived.apply(upTo));
+        merged.sort(Comparator.comparing(BookingRequest::getId));
+        return merged.subList(Math.min((int) pageable.getOffset(), merged.size()), Math.min(upTo, merged.size()));
+    }
+
+    private BookingPageDTO toPage(List<BookingRequest> bookings, Pageable pageable) {
+        Long nextCursor = bookings.size() == pageable.getPageSize()
+                ? bookings.get(bookings.size() - 1).getId()
+                : null;
+        return new BookingPageDTO(bookings.stream().map(this::toResponseDTO).toList(), nextCursor);
+    }
+
+    // package-private so the jmh benchmarks can reach it
+    BookingResponseDTO toResponseDTO(BookingRequest booking) {
         BookingResponseDTO dto = new BookingResponseDTO();
         dto.setToken(booking.getToken());
         dto.setMunicipality(booking.getMunicipality());
@@ -193,12 +597,8 @@ public class BookingServiceImpl implements BookingService {
     }
 
     // this function is to fix a security logging issue pointed out by sonar
-    private String sanitizeForLog(String input) {
-        if (input == null) {
-            return "";
-        }
-        // allow only uppercase letters and numbers -- normal aspect of token
-        return input.matches("^[A-Z0-9]{20}$") ? input : "[INVALID_TOKEN_FORMAT]";
+    String sanitizeForLog(String input) {
+        return TokenFormat.sanitize(input);
     }
 
 }
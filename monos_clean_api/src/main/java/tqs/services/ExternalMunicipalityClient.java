@@ -2,35 +2,222 @@ package tqs.services;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tqs.config.MunicipalityApiProperties;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class ExternalMunicipalityClient {
 
     private static final Logger logger = LoggerFactory.getLogger(ExternalMunicipalityClient.class);
-    private static final String MUNICIPALITY_API_URL = "https://json.geoapi.pt/municipio";
 
-    private final RestTemplate restTemplate;
+    // validators of the last full response, sent back so an unchanged list costs a 304
+    private record CachedResponse(String etag, String lastModified, List<String> names) {
+    }
+
+    private final HttpClient httpClient;
+    private final ObjectMapper mapper;
+    private final URI apiUri;
+    private final Duration readTimeout;
+    private final long maxWaitMs;
+    private final CircuitBreaker circuitBreaker;
+    // bulkhead -- caps how many threads can be stuck on the remote api at once
+    private final Semaphore bulkhead;
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private final AtomicLong failedCalls = new AtomicLong();
+    private final AtomicLong notModifiedResponses = new AtomicLong();
+    // every call that reached the remote api, and the wall time spent waiting on it
+    private final AtomicLong completedCalls = new AtomicLong();
+    private final AtomicLong callNanos = new AtomicLong();
+    private volatile CachedResponse lastResponse;
+
+    @Autowired
+    public ExternalMunicipalityClient(ObjectMapper mapper, MunicipalityApiProperties properties) {
+        // one client for the lifetime of the app -- keeps connections alive between refreshes
+        // and negotiates http/2 where the server offers it
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.connectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build(), mapper, properties);
+    }
 
-    public ExternalMunicipalityClient(RestTemplateBuilder restTemplateBuilder) {
-        this.restTemplate = restTemplateBuilder.build();
+    public ExternalMunicipalityClient(HttpClient httpClient, ObjectMapper mapper,
+            MunicipalityApiProperties properties) {
+        this.httpClient = httpClient;
+        this.mapper = mapper;
+        this.apiUri = URI.create(properties.url());
+        this.readTimeout = properties.readTimeout();
+        this.maxWaitMs = properties.maxWait().toMillis();
+        this.circuitBreaker = new CircuitBreaker(properties.failureThreshold(), properties.openDuration());
+        this.bulkhead = new Semaphore(properties.maxConcurrentCalls());
     }
 
     public List<String> fetchMunicipalityNamesRaw() {
+        if (!acquireBulkhead()) {
+            rejectedCalls.incrementAndGet();
+            throw new RuntimeException("Too many concurrent calls to the municipality API");
+        }
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                rejectedCalls.incrementAndGet();
+                throw new RuntimeException("Municipality API circuit is open");
+            }
+            // the outcome is recorded in a finally, so whatever fetch throws also ends a half-open trial
+            boolean succeeded = false;
+            try {
+                List<String> names = fetch();
+                succeeded = true;
+                return names;
+            } finally {
+                if (succeeded) {
+                    circuitBreaker.onSuccess();
+                } else {
+                    circuitBreaker.onFailure();
+                }
+            }
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    // an unchanged list comes back as the same List instance as the previous call
+    private List<String> fetch() {
+        CachedResponse cached = lastResponse;
         try {
-            String[] response = restTemplate.getForObject(MUNICIPALITY_API_URL, String[].class);
-            if (response == null)
-                return List.of();
-            return Arrays.asList(response);
-        } catch (RestClientException e) {
+            HttpResponse<byte[]> response = send(buildRequest(cached));
+            int status = response.statusCode();
+
+            if (status == HttpStatus.NOT_MODIFIED.value() && cached != null) {
+                notModifiedResponses.incrementAndGet();
+                return cached.names();
+            }
+            if (status < 200 || status >= 300) {
+                throw new IOException("Municipality API answered with status " + status);
+            }
+
+            List<String> names = parse(response.body());
+            lastResponse = new CachedResponse(
+                    response.headers().firstValue(HttpHeaders.ETAG).orElse(null),
+                    response.headers().firstValue(HttpHeaders.LAST_MODIFIED).orElse(null),
+                    names);
+            return names;
+        } catch (IOException e) {
+            failedCalls.incrementAndGet();
             logger.error("Failed to fetch municipalities", e);
             throw new RuntimeException("Unable to fetch municipality list", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failedCalls.incrementAndGet();
+            throw new RuntimeException("Interrupted while fetching municipality list", e);
+        }
+    }
+
+    // the request timeout only covers the wait for the response headers -- the deadline on the
+    // future also cuts off a server that sends the body slowly
+    private HttpResponse<byte[]> send(HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<byte[]>> call = httpClient.sendAsync(request,
+                HttpResponse.BodyHandlers.ofByteArray());
+        try {
+            return call.get(readTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new HttpTimeoutException("Municipality API did not answer within " + readTimeout);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException("Municipality API call failed", e.getCause());
+        } finally {
+            call.cancel(true); // no-op once completed, aborts the exchange otherwise
+            callNanos.addAndGet(System.nanoTime() - start);
+            completedCalls.incrementAndGet();
         }
     }
-}
\ No newline at end of file
+
+    private HttpRequest buildRequest(CachedResponse cached) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(apiUri)
+                .timeout(readTimeout)
+                .header(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE)
+                .GET();
+        if (cached != null) {
+            if (cached.etag() != null) {
+                request.header(HttpHeaders.IF_NONE_MATCH, cached.etag());
+            }
+            if (cached.lastModified() != null) {
+                request.header(HttpHeaders.IF_MODIFIED_SINCE, cached.lastModified());
+            }
+        }
+        return request.build();
+    }
+
+    private List<String> parse(byte[] body) throws IOException {
+        if (body == null || body.length == 0) {
+            return List.of();
+        }
+        String[] names = mapper.readValue(body, String[].class);
+        if (names == null)
+            return List.of();
+        return Arrays.asList(names);
+    }
+
+    private boolean acquireBulkhead() {
+        try {
+            return bulkhead.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // exposed for metrics
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    public long getCompletedCalls() {
+        return completedCalls.get();
+    }
+
+    public long getCallNanos() {
+        return callNanos.get();
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    public long getFailedCalls() {
+        return failedCalls.get();
+    }
+
+    public long getNotModifiedResponses() {
+        return notModifiedResponses.get();
+    }
+
+    public int getAvailableConcurrentCalls() {
+        return bulkhead.availablePermits();
+    }
+}
@@ -1,53 +1,197 @@
 package tqs.services;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
 import tqs.dto.MunicipalityDTO;
 
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Service
 public class MunicipalityService {
+    private static final Logger logger = LoggerFactory.getLogger(MunicipalityService.class);
+
     private final ExternalMunicipalityClient client;
-    private final AtomicReference<List<MunicipalityDTO>> cachedMunicipalities;
+    private final Executor refreshExecutor;
+    private final MunicipalitySnapshotStore snapshotStore;
+    private final AtomicReference<Snapshot> cachedMunicipalities;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    // hit: served from the cached list, miss: caller had to wait for the first load
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failedRefreshes = new AtomicLong();
+    // a lock rather than synchronized -- the first load waits on a remote call, and a virtual
+    // thread blocked inside synchronized would pin its carrier thread for the whole call
+    private final ReentrantLock initialLoadLock = new ReentrantLock();
     private volatile long cacheExpiry = 0;
-    private static final long CACHE_TTL_MS = TimeUnit.HOURS.toMillis(1);
+    public static final Duration CACHE_TTL = Duration.ofHours(1);
+    private static final long CACHE_TTL_MS = CACHE_TTL.toMillis();
+    // after a failed refresh keep serving the old list and try again a bit later
+    private static final long RETRY_AFTER_FAILURE_MS = TimeUnit.MINUTES.toMillis(1);
+
+    // the list, its code index and its version are swapped together so readers never see
+    // them out of sync
+    private record Snapshot(List<String> names, List<MunicipalityDTO> municipalities, Set<String> codes,
+            String version) {
+        static final Snapshot EMPTY = new Snapshot(Collections.emptyList(), Collections.emptyList(),
+                Collections.emptySet(), "0");
+
+        static Snapshot of(List<String> names) {
+            List<MunicipalityDTO> municipalities = names.stream()
+                    .map(MunicipalityDTO::new)
+                    .collect(Collectors.toUnmodifiableList());
+            return new Snapshot(names, municipalities, municipalities.stream()
+                    .map(MunicipalityDTO::getCode)
+                    .collect(Collectors.toUnmodifiableSet()),
+                    // content hash -- the same list always gets the same version, across restarts too
+                    names.size() + "-" + Integer.toHexString(names.hashCode()));
+        }
+    }
+
+    // the list together with the version it was read from, for http validators
+    public record Listing(List<MunicipalityDTO> municipalities, String version) {
+    }
 
     public MunicipalityService(ExternalMunicipalityClient client) {
+        this(client, ForkJoinPool.commonPool(), MunicipalitySnapshotStore.disabled());
+    }
+
+    @Autowired
+    public MunicipalityService(ExternalMunicipalityClient client,
+            @Qualifier("applicationTaskExecutor") Executor refreshExecutor,
+            MunicipalitySnapshotStore snapshotStore) {
         this.client = client;
-        this.cachedMunicipalities = new AtomicReference<>(Collections.emptyList());
+        this.refreshExecutor = refreshExecutor;
+        this.snapshotStore = snapshotStore;
+        this.cachedMunicipalities = new AtomicReference<>(Snapshot.EMPTY);
     }
 
+    // serve the list saved by the previous run straight away and reconcile with the
+    // remote api in the background
+    @PostConstruct
+    public void restoreSnapshot() {
+        snapshotStore.load().ifPresent(stored -> {
+            cachedMunicipalities.set(Snapshot.of(stored.names()));
+            cacheExpiry = stored.savedAt() + CACHE_TTL_MS;
+            logger.info("Loaded {} municipalities from local snapshot", stored.names().size());
+            scheduleRefresh();
+        });
+    }
+
+    // stale-while-revalidate: only an empty cache blocks the caller, an expired one is
+    // served as is while a single background refresh replaces it
     private void refreshCacheIfNeeded() {
-        if (System.currentTimeMillis() > cacheExpiry || cachedMunicipalities.get().isEmpty()) {
-            synchronized (this) {
-                if (System.currentTimeMillis() > cacheExpiry || cachedMunicipalities.get().isEmpty()) {
-                    List<String> names = client.fetchMunicipalityNamesRaw();
-                    List<MunicipalityDTO> municipalities = names.stream()
-                            .map(MunicipalityDTO::new)
-                            .collect(Collectors.toUnmodifiableList());
-                    cachedMunicipalities.set(municipalities);
-                    cacheExpiry = System.currentTimeMillis() + CACHE_TTL_MS;
+        if (cachedMunicipalities.get().municipalities().isEmpty()) {
+            cacheMisses.incrementAndGet();
+            initialLoadLock.lock();
+            try {
+                if (cachedMunicipalities.get().municipalities().isEmpty()) {
+                    reload();
                 }
+            } finally {
+                initialLoadLock.unlock();
+            }
+        } else {
+            cacheHits.incrementAndGet();
+            if (System.currentTimeMillis() > cacheExpiry) {
+                scheduleRefresh();
             }
         }
     }
 
+    private void scheduleRefresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(this::refreshInBackground);
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+            logger.warn("Could not schedule municipality refresh", e);
+        }
+    }
+
+    private void refreshInBackground() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            cacheExpiry = System.currentTimeMillis() + RETRY_AFTER_FAILURE_MS;
+            failedRefreshes.incrementAndGet();
+            logger.warn("Municipality refresh failed, keeping the cached list", e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private void reload() {
+        List<String> names = client.fetchMunicipalityNamesRaw();
+        if (names.isEmpty() && !cachedMunicipalities.get().municipalities().isEmpty()) {
+            throw new IllegalStateException("Municipality API returned an empty list");
+        }
+        // the client hands back the very same list when the api answered 304 -- nothing to rebuild
+        if (names != cachedMunicipalities.get().names()) {
+            cachedMunicipalities.set(Snapshot.of(names));
+            snapshotStore.save(names);
+        }
+        cacheExpiry = System.currentTimeMillis() + CACHE_TTL_MS;
+        refreshes.incrementAndGet();
+    }
+
     public boolean isValid(String code) {
         if (code == null) {
             return false;
         }
         refreshCacheIfNeeded();
-        return cachedMunicipalities.get().stream()
-                .anyMatch(dto -> dto.getCode().equals(code.toUpperCase()));
+        // codes are stored upper case -- only fold the input when the exact lookup misses
+        Set<String> codes = cachedMunicipalities.get().codes();
+        return codes.contains(code) || codes.contains(normalizeCode(code));
+    }
+
+    // the form isValid accepts a code in, as it is stored in the list
+    public static String normalizeCode(String code) {
+        return code.toUpperCase();
     }
 
     public List<MunicipalityDTO> getAllMunicipalities() {
+        return getListing().municipalities();
+    }
+
+    public Listing getListing() {
         refreshCacheIfNeeded();
-        return cachedMunicipalities.get();
+        Snapshot snapshot = cachedMunicipalities.get();
+        return new Listing(snapshot.municipalities(), snapshot.version());
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    public long getRefreshes() {
+        return refreshes.get();
+    }
+
+    public long getFailedRefreshes() {
+        return failedRefreshes.get();
     }
-}
\ No newline at end of file
+}
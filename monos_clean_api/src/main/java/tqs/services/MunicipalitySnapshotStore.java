@@ -0,0 +1,86 @@
+package tqs.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// keeps the last good municipality list on disk so a restart can serve it before the
+// remote api answers -- an empty path disables it
+@Component
+public class MunicipalitySnapshotStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MunicipalitySnapshotStore.class);
+
+    public record Stored(long savedAt, List<String> names) {
+    }
+
+    private final Path path;
+    private final ObjectMapper mapper;
+
+    @Autowired
+    public MunicipalitySnapshotStore(@Value("${municipalities.snapshot-path:data/municipalities.json}") String path,
+            ObjectMapper mapper) {
+        this.path = path == null || path.isBlank() ? null : Path.of(path);
+        this.mapper = mapper;
+    }
+
+    public static MunicipalitySnapshotStore disabled() {
+        return new MunicipalitySnapshotStore("", new ObjectMapper());
+    }
+
+    public Optional<Stored> load() {
+        if (path == null || !Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try {
+            Stored stored = mapper.readValue(path.toFile(), Stored.class);
+            if (stored.names() == null || stored.names().isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(stored);
+        } catch (IOException e) {
+            logger.warn("Ignoring unreadable municipality snapshot {}", path, e);
+            return Optional.empty();
+        }
+    }
+
+    // best effort -- a failed write only costs the next cold start a remote fetch
+    public void save(List<String> names) {
+        if (path == null) {
+            return;
+        }
+        Path tmp = null;
+        try {
+            Path dir = path.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            tmp = Files.createTempFile(dir, "municipalities", ".tmp");
+            mapper.writeValue(tmp.toFile(), new Stored(System.currentTimeMillis(), names));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write municipality snapshot {}", path, e);
+            deleteQuietly(tmp);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Could not delete {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package tqs.services;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.annotation.PostConstruct;
+import tqs.data.BookingRequestRepo;
+import tqs.data.Slot;
+import tqs.data.SlotCount;
+import tqs.data.Status;
+
+// in-memory booking counters per (municipality, date, slot) for the bookable window,
+// so capacity checks don't need a COUNT query against the db
+@Component
+public class SlotCapacityLedger {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlotCapacityLedger.class);
+
+    // bookings can only be made from today up to 2 weeks ahead
+    public static final int WINDOW_DAYS = 14;
+
+    // ordered the same way wherever several slot_occupancy rows are locked in one transaction,
+    // so an import and a bulk cancel can never wait on each other's rows
+    public record SlotKey(String municipality, LocalDate date, Slot slot) implements Comparable<SlotKey> {
+
+        private static final Comparator<SlotKey> ORDER = Comparator.comparing(SlotKey::municipality)
+                .thenComparing(SlotKey::date)
+                .thenComparing(SlotKey::slot);
+
+        @Override
+        public int compareTo(SlotKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    private final BookingRequestRepo repo;
+    private final ConcurrentMap<SlotKey, AtomicInteger> counters = new ConcurrentHashMap<>();
+    private volatile LocalDate windowStart = LocalDate.MIN;
+
+    @Autowired
+    public SlotCapacityLedger(BookingRequestRepo repo) {
+        this.repo = repo;
+    }
+
+    @PostConstruct
+    public void seed() {
+        LocalDate today = LocalDate.now();
+        counters.clear();
+        for (SlotCount row : repo.countBySlotBetween(today, today.plusDays(WINDOW_DAYS), Status.CANCELLED)) {
+            SlotKey key = new SlotKey(row.getMunicipality(), row.getCollectionDate(), row.getTimeSlot());
+            counters.put(key, new AtomicInteger((int) row.getBooked()));
+        }
+        windowStart = today;
+        logger.info("Slot capacity ledger seeded with {} occupied slots", counters.size());
+    }
+
+    // true if the date is inside the window tracked by the ledger
+    public boolean covers(LocalDate date) {
+        LocalDate today = LocalDate.now();
+        rollWindow(today);
+        return date != null && !date.isBefore(today) && !date.isAfter(today.plusDays(WINDOW_DAYS));
+    }
+
+    public int count(String municipality, LocalDate date, Slot slot) {
+        AtomicInteger counter = counters.get(new SlotKey(municipality, date, slot));
+        return counter == null ? 0 : counter.get();
+    }
+
+    // atomically takes one place in the slot if it is below capacity -- a cas loop on the
+    // slot's own counter, so only requests for the same slot ever contend
+    public boolean tryReserve(String municipality, LocalDate date, Slot slot, int capacity) {
+        AtomicInteger counter = counters.computeIfAbsent(new SlotKey(municipality, date, slot),
+                k -> new AtomicInteger());
+        int current;
+        do {
+            current = counter.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!counter.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public void release(String municipality, LocalDate date, Slot slot) {
+        AtomicInteger counter = counters.get(new SlotKey(municipality, date, slot));
+        if (counter != null) {
+            counter.updateAndGet(n -> Math.max(0, n - 1));
+        }
+    }
+
+    // a place freed by a cancel only comes back once the cancel commits -- releasing it
+    // earlier would let a booking take it while a failed commit still holds it in the db
+    public void releaseAfterCommit(String municipality, LocalDate date, Slot slot) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(municipality, date, slot);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(municipality, date, slot);
+            }
+        });
+    }
+
+    public boolean releaseOnRollback(String municipality, LocalDate date, Slot slot) {
+        return releaseOnRollback(List.of(new SlotKey(municipality, date, slot)));
+    }
+
+    // gives reserved places back if the surrounding transaction rolls back, also when that
+    // only happens at commit, after the caller returned. false outside a transaction, where
+    // the caller has to release them itself on failure
+    public boolean releaseOnRollback(Collection<SlotKey> keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    keys.forEach(key -> release(key.municipality(), key.date(), key.slot()));
+                }
+            }
+        });
+        return true;
+    }
+
+    // places taken in the given slot across the whole window, for the occupancy gauges
+    public int booked(Slot slot) {
+        int total = 0;
+        for (Map.Entry<SlotKey, AtomicInteger> entry : counters.entrySet()) {
+            if (entry.getKey().slot() == slot) {
+                total += entry.getValue().get();
+            }
+        }
+        return total;
+    }
+
+    // how many (municipality, date) pairs have no place left in the given slot
+    public int full(Slot slot, int capacity) {
+        int total = 0;
+        for (Map.Entry<SlotKey, AtomicInteger> entry : counters.entrySet()) {
+            if (entry.getKey().slot() == slot && entry.getValue().get() >= capacity) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    // drop the counters of days that left the window -- new days start at zero since
+    // nothing can be booked before they enter it
+    private void rollWindow(LocalDate today) {
+        if (today.equals(windowStart)) {
+            return;
+        }
+        counters.keySet().removeIf(key -> key.date().isBefore(today));
+        windowStart = today;
+    }
+}
@@ -0,0 +1,41 @@
+package tqs.services;
+
+import tqs.exceptions.InvalidBookingException;
+
+// shape check for booking tokens ([A-Z0-9]{20}) -- a plain char-range loop, no regex
+public final class TokenFormat {
+
+    static final String INVALID_PLACEHOLDER = "[INVALID_TOKEN_FORMAT]";
+
+    private TokenFormat() {
+    }
+
+    public static boolean isValid(CharSequence token) {
+        if (token == null || token.length() != TokenGenerator.LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < TokenGenerator.LENGTH; i++) {
+            char c = token.charAt(i);
+            if ((c < 'A' || c > 'Z') && (c < '0' || c > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // safe to log or echo back -- anything else is replaced, so no forged log lines
+    public static String sanitize(String token) {
+        if (token == null) {
+            return "";
+        }
+        return isValid(token) ? token : INVALID_PLACEHOLDER;
+    }
+
+    // a malformed token can never match a booking, so it is answered as not found
+    // without going to the database
+    public static void requireValid(String token) {
+        if (!isValid(token)) {
+            throw new InvalidBookingException("No booking found under token: " + sanitize(token));
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package tqs.services;
+
+import java.security.SecureRandom;
+
+import org.springframework.stereotype.Component;
+
+// booking tokens -- 20 chars of [A-Z0-9] (~103 bits) drawn straight from one shared
+// SecureRandom, with no intermediate strings
+@Component
+public class TokenGenerator {
+
+    public static final int LENGTH = 20;
+
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+
+    // largest multiple of 36 below 256 -- bytes at or above it are dropped so every
+    // character is equally likely
+    private static final int REJECT_FROM = 256 - 256 % ALPHABET.length;
+
+    // SecureRandom is thread-safe. requests run on virtual threads, which are never reused,
+    // so a per-thread instance would be seeded anew for every single token
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    public String next() {
+        // small enough to stay in the thread's allocation buffer
+        byte[] bytes = new byte[32];
+        char[] chars = new char[LENGTH];
+
+        int filled = 0;
+        while (filled < LENGTH) {
+            RANDOM.nextBytes(bytes);
+            for (int i = 0; i < bytes.length && filled < LENGTH; i++) {
+                int b = bytes[i] & 0xFF;
+                if (b < REJECT_FROM) {
+                    chars[filled++] = ALPHABET[b % ALPHABET.length];
+                }
+            }
+        }
+        return new String(chars);
+    }
+}
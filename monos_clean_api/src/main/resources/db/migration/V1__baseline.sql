@@ -0,0 +1,28 @@
+-- schema as hibernate's ddl-auto=update left it; databases created that way are
+-- baselined at this version (spring.flyway.baseline-on-migrate) and skip this script
+
+CREATE TABLE bookings (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    token VARCHAR(20) NOT NULL,
+    municipality VARCHAR(10) NOT NULL,
+    description VARCHAR(500) NOT NULL,
+    collection_date DATE NOT NULL,
+    time_slot VARCHAR(20) NOT NULL CHECK (time_slot IN ('MORNING', 'AFTERNOON', 'EVENING')),
+    status VARCHAR(20) NOT NULL
+        CHECK (status IN ('RECEIVED', 'ASSIGNED', 'IN_PROGRESS', 'COMPLETED', 'CANCELLED')),
+    contact_info VARCHAR(100),
+    address VARCHAR(200),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6)
+);
+
+CREATE UNIQUE INDEX idx_token ON bookings (token);
+CREATE INDEX idx_municipality_date ON bookings (municipality, collection_date);
+
+CREATE TABLE booking_status_history (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    booking_id BIGINT NOT NULL REFERENCES bookings (id),
+    status VARCHAR(20) NOT NULL
+        CHECK (status IN ('RECEIVED', 'ASSIGNED', 'IN_PROGRESS', 'COMPLETED', 'CANCELLED')),
+    timestamp TIMESTAMP(6) NOT NULL
+);
@@ -0,0 +1,16 @@
+-- one index per query shape in BookingRequestRepo
+
+-- slot counts (capacity check, ledger seed) and the municipality/date listing; status is
+-- part of the key so the counts are answered from the index alone
+CREATE INDEX idx_bookings_slot ON bookings (municipality, collection_date, time_slot, status);
+-- a prefix of the index above
+DROP INDEX idx_municipality_date;
+
+-- staff listing by status
+CREATE INDEX idx_bookings_status_date ON bookings (status, collection_date);
+
+-- staff listing and export by date range
+CREATE INDEX idx_bookings_collection_date ON bookings (collection_date);
+
+-- batched history load for a page of bookings; postgres does not index foreign keys itself
+CREATE INDEX idx_status_history_booking ON booking_status_history (booking_id, timestamp);
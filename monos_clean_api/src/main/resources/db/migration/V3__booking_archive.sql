@@ -0,0 +1,37 @@
+-- terminal bookings (COMPLETED, CANCELLED) are moved here once they are old enough, so the
+-- live tables only hold work that can still change. partitioned by month of collection
+-- date; BookingArchiveRepo creates each month's partition before moving rows into it
+
+CREATE TABLE bookings_archive (
+    id BIGINT NOT NULL,
+    token VARCHAR(20) NOT NULL,
+    municipality VARCHAR(10) NOT NULL,
+    description VARCHAR(500) NOT NULL,
+    collection_date DATE NOT NULL,
+    time_slot VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    contact_info VARCHAR(100),
+    address VARCHAR(200),
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6),
+    archived_at TIMESTAMP(6) NOT NULL DEFAULT now(),
+    PRIMARY KEY (id, collection_date)
+) PARTITION BY RANGE (collection_date);
+
+-- unique per partition only, tokens are already unique when rows leave the live table
+CREATE INDEX idx_bookings_archive_token ON bookings_archive (token);
+
+CREATE TABLE booking_status_history_archive (
+    id BIGINT NOT NULL,
+    booking_id BIGINT NOT NULL,
+    collection_date DATE NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    timestamp TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id, collection_date)
+) PARTITION BY RANGE (collection_date);
+
+CREATE INDEX idx_status_history_archive_booking ON booking_status_history_archive (booking_id, timestamp);
+
+-- the archiver's own lookup; stays small because matching rows keep leaving the table
+CREATE INDEX idx_bookings_terminal ON bookings (updated_at)
+    WHERE status IN ('COMPLETED', 'CANCELLED');
@@ -0,0 +1,21 @@
+-- non-cancelled bookings per slot, maintained by the booking service in the same
+-- transaction as the bookings; one small indexed read for the staff occupancy view
+
+CREATE TABLE slot_occupancy (
+    municipality VARCHAR(10) NOT NULL,
+    collection_date DATE NOT NULL,
+    time_slot VARCHAR(20) NOT NULL,
+    booked INTEGER NOT NULL CHECK (booked >= 0),
+    PRIMARY KEY (municipality, collection_date, time_slot)
+);
+
+CREATE INDEX idx_slot_occupancy_date ON slot_occupancy (collection_date);
+
+INSERT INTO slot_occupancy (municipality, collection_date, time_slot, booked)
+SELECT municipality, collection_date, time_slot, count(*)
+FROM (
+    SELECT municipality, collection_date, time_slot FROM bookings WHERE status <> 'CANCELLED'
+    UNION ALL
+    SELECT municipality, collection_date, time_slot FROM bookings_archive WHERE status <> 'CANCELLED'
+) counted
+GROUP BY municipality, collection_date, time_slot;
@@ -0,0 +1,166 @@
+package tqs.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import tqs.data.BookingRequest;
+import tqs.data.BookingRequestRepo;
+import tqs.data.Slot;
+import tqs.data.Status;
+import tqs.dto.BookingPageDTO;
+import tqs.dto.BookingResponseDTO;
+import tqs.exceptions.InvalidBookingException;
+import tqs.services.BookingArchiveService;
+import tqs.services.BookingExportService;
+import tqs.services.BookingService;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the archive relies on postgres partitioning -- skipped when docker is not available
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect",
+        "bookings.archive.enabled=true",
+        "bookings.archive.batch-size=2"
+})
+@ActiveProfiles("test")
+class BookingArchiveIntegrationTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private BookingArchiveService archiveService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingExportService exportService;
+
+    @Autowired
+    private BookingRequestRepo repo;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final LocalDate longAgo = LocalDate.now().minusDays(60);
+
+    @AfterEach
+    void tearDown() {
+        jdbc.update("DELETE FROM booking_status_history_archive");
+        jdbc.update("DELETE FROM bookings_archive");
+        repo.deleteAll();
+    }
+
+    @Test
+    void whenTerminalBookingsAreOld_thenTheyMoveToTheArchive() {
+        for (int i = 0; i < 3; i++) {
+            save("DONE" + i, longAgo, Status.COMPLETED, 45);
+        }
+        save("CANCELLED0", longAgo, Status.CANCELLED, 45);
+        save("ACTIVE0", longAgo, Status.IN_PROGRESS, 45); // not terminal
+        save("RECENT0", longAgo, Status.COMPLETED, 2); // terminal, but not for long enough
+
+        // batch size 2, so this also covers the loop over several batches
+        assertEquals(4, archiveService.archiveTerminalBookings());
+
+        assertEquals(2, repo.count());
+        assertTrue(repo.findByToken(padded("ACTIVE0")).isPresent());
+        assertTrue(repo.findByToken(padded("RECENT0")).isPresent());
+        assertEquals(4, jdbc.queryForObject("SELECT count(*) FROM bookings_archive", Integer.class));
+        assertEquals(4, jdbc.queryForObject("SELECT count(*) FROM bookings_archive_"
+                + longAgo.format(DateTimeFormatter.ofPattern("yyyy_MM")), Integer.class));
+        assertEquals(0, archiveService.archiveTerminalBookings());
+    }
+
+    @Test
+    void whenBookingIsArchived_thenTokenLookupStillFindsIt() {
+        save("DONE0", longAgo, Status.COMPLETED, 45);
+        archiveService.archiveTerminalBookings();
+
+        BookingResponseDTO found = bookingService.getBookingByToken(padded("DONE0"));
+
+        assertEquals(Status.COMPLETED, found.getStatus());
+        assertEquals(longAgo, found.getDate());
+        assertEquals(4, found.getHistory().size());
+        assertEquals(Status.RECEIVED, found.getHistory().get(0).getStatus());
+        assertEquals(Status.COMPLETED, found.getHistory().get(3).getStatus());
+    }
+
+    @Test
+    void whenBookingIsArchived_thenExportAndListingsStillIncludeIt() throws Exception {
+        save("DONE0", longAgo, Status.COMPLETED, 45);
+        save("ACTIVE0", longAgo, Status.IN_PROGRESS, 45);
+        archiveService.archiveTerminalBookings();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, exportService.export(longAgo, longAgo, BookingExportService.Format.CSV, out));
+        assertTrue(out.toString(StandardCharsets.UTF_8).contains(padded("DONE0")));
+
+        assertEquals(2, bookingService.getBookingsByDateRange(longAgo, longAgo).size());
+        BookingPageDTO first = bookingService.getBookingsByDateRange(longAgo, longAgo, 0, 1, null);
+        BookingPageDTO second = bookingService.getBookingsByDateRange(longAgo, longAgo, 0, 1, first.getNextCursor());
+        assertEquals(padded("DONE0"), first.getItems().get(0).getToken());
+        assertEquals(4, first.getItems().get(0).getHistory().size());
+        assertEquals(padded("ACTIVE0"), second.getItems().get(0).getToken());
+    }
+
+    @Test
+    void whenCancellingArchivedBooking_thenItIsStillABadRequest() {
+        save("DONE0", longAgo, Status.COMPLETED, 45);
+        archiveService.archiveTerminalBookings();
+
+        InvalidBookingException e = assertThrows(InvalidBookingException.class,
+                () -> bookingService.cancelBookingByToken(padded("DONE0")));
+        assertEquals("Cannot cancel booking in status: COMPLETED", e.getMessage());
+    }
+
+    private void save(String token, LocalDate date, Status status, int terminalDaysAgo) {
+        BookingRequest booking = new BookingRequest("LISBOA", "Item " + token, date, Slot.MORNING,
+                "user@example.com", "Street 1");
+        booking.setToken(padded(token));
+        booking.addStatusHistory(Status.RECEIVED);
+        for (Status step : new Status[] { Status.ASSIGNED, Status.IN_PROGRESS, Status.COMPLETED }) {
+            if (status == Status.CANCELLED || booking.getStatus() == status) {
+                break;
+            }
+            booking.addStatusHistory(step);
+        }
+        if (status == Status.CANCELLED) {
+            booking.addStatusHistory(Status.CANCELLED);
+        }
+        repo.save(booking);
+        jdbc.update("UPDATE bookings SET updated_at = ? WHERE token = ?",
+                LocalDateTime.now().minusDays(terminalDaysAgo), padded(token));
+    }
+
+    private static String padded(String token) {
+        return String.format("%-20s", token).replace(' ', 'X');
+    }
+}
@@ -0,0 +1,88 @@
+package tqs.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import tqs.data.BookingRequest;
+import tqs.data.BookingRequestRepo;
+import tqs.data.Slot;
+import tqs.data.Status;
+import tqs.dto.BookingResponseDTO;
+import tqs.dto.BulkStatusResultDTO;
+import tqs.services.BookingService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+class BookingBulkStatusIntegrationTest {
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRequestRepo repo;
+
+    private final LocalDate date = LocalDate.now().plusDays(2);
+
+    @AfterEach
+    void tearDown() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void whenBulkAssigning_thenStatusAndHistoryAreWritten() {
+        List<String> tokens = saveBookings(Status.RECEIVED, 30);
+        tokens.add("ZZZZZZZZZZZZZZZZZZZZ"); // unknown
+
+        List<BulkStatusResultDTO> results = bookingService.updateBookingStatuses(tokens, Status.ASSIGNED);
+
+        assertEquals(31, results.size());
+        assertEquals(30, results.stream()
+                .filter(r -> r.getOutcome() == BulkStatusResultDTO.Outcome.UPDATED).count());
+        assertEquals(BulkStatusResultDTO.Outcome.NOT_FOUND, results.get(30).getOutcome());
+
+        List<BookingResponseDTO> assigned = bookingService.getBookingsByStatus(Status.ASSIGNED);
+        assertEquals(30, assigned.size());
+        // the RECEIVED entry from creation plus the ASSIGNED one from the bulk update
+        assertTrue(assigned.stream().allMatch(b -> b.getHistory().size() == 2
+                && b.getHistory().get(1).getStatus() == Status.ASSIGNED));
+    }
+
+    @Test
+    void whenTransitionNotAllowed_thenBookingIsLeftAlone() {
+        List<String> tokens = saveBookings(Status.RECEIVED, 1);
+
+        List<BulkStatusResultDTO> results = bookingService.updateBookingStatuses(tokens, Status.COMPLETED);
+
+        assertEquals(BulkStatusResultDTO.Outcome.INVALID_TRANSITION, results.get(0).getOutcome());
+        assertEquals(Status.RECEIVED, results.get(0).getStatus());
+        assertEquals(1, bookingService.getBookingsByStatus(Status.RECEIVED).size());
+    }
+
+    private List<String> saveBookings(Status status, int count) {
+        List<BookingRequest> bookings = new ArrayList<>();
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BookingRequest booking = new BookingRequest("LISBOA", "Item " + i, date, Slot.values()[i % 3],
+                    "user" + i + "@example.com", "Street " + i);
+            booking.setToken(String.format("BULK%016d", i));
+            booking.addStatusHistory(status);
+            bookings.add(booking);
+            tokens.add(booking.getToken());
+        }
+        repo.saveAll(bookings);
+        return tokens;
+    }
+}
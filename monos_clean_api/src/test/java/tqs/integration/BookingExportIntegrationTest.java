@@ -0,0 +1,116 @@
+package tqs.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import tqs.data.BookingRequest;
+import tqs.data.BookingRequestRepo;
+import tqs.data.Slot;
+import tqs.data.Status;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class BookingExportIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private BookingRequestRepo repo;
+
+    private final LocalDate date = LocalDate.now().plusDays(2);
+
+    @BeforeEach
+    void setUp() {
+        List<BookingRequest> bookings = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            BookingRequest booking = new BookingRequest("LISBOA", "Sofa, \"large\" " + i, date, Slot.MORNING,
+                    "user" + i + "@example.com", "Street " + i);
+            booking.setToken(String.format("TOKEN%015d", i));
+            booking.addStatusHistory(Status.RECEIVED);
+            bookings.add(booking);
+        }
+        // outside the exported range
+        BookingRequest other = new BookingRequest("PORTO", "Fridge", date.plusDays(5), Slot.EVENING,
+                "other@example.com", "Elsewhere");
+        other.setToken("TOKENOUTSIDERANGE000");
+        other.addStatusHistory(Status.RECEIVED);
+        bookings.add(other);
+        repo.saveAll(bookings);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repo.deleteAll();
+    }
+
+    @Test
+    void whenExportingNdjson_thenOneJsonObjectPerLine() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/staff/bookings/export")
+                .param("start", date.toString())
+                .param("end", date.plusDays(1).toString()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("{\"token\":\"TOKEN000000000000000\""));
+        assertTrue(lines[0].contains("\"collectionDate\":\"" + date + "\""));
+        assertFalse(body.contains("history"));
+        assertFalse(body.contains("TOKENOUTSIDERANGE000"));
+    }
+
+    @Test
+    void whenExportingCsv_thenHeaderAndQuotedFields() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/staff/bookings/export")
+                .param("start", date.toString())
+                .param("end", date.plusDays(1).toString())
+                .param("format", "CSV"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"bookings-" + date + "-" + date.plusDays(1) + ".csv\""))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("token,municipality,description"));
+        assertTrue(lines[1].startsWith("TOKEN000000000000000,LISBOA,\"Sofa, \"\"large\"\" 0\"," + date + ",MORNING,RECEIVED"));
+    }
+
+    @Test
+    void whenRangeIsInverted_thenBadRequestBeforeStreaming() throws Exception {
+        mockMvc.perform(get("/api/staff/bookings/export")
+                .param("start", date.toString())
+                .param("end", date.minusDays(1).toString()))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,224 @@
+package tqs.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import tqs.data.BookingJdbcRepo;
+import tqs.data.BookingRequestRepo;
+import tqs.data.Slot;
+import tqs.data.Status;
+import tqs.dto.BookingRequestDTO;
+import tqs.dto.BookingResponseDTO;
+import tqs.dto.ImportResultDTO;
+import tqs.exceptions.InvalidBookingException;
+import tqs.services.BookingImportService;
+import tqs.services.BookingService;
+import tqs.services.MunicipalityService;
+import tqs.services.SlotCapacityLedger;
+
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+class BookingImportIntegrationTest {
+
+    @MockBean
+    private MunicipalityService municipalityService;
+
+    @Autowired
+    private BookingImportService importService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRequestRepo repo;
+
+    @Autowired
+    private SlotCapacityLedger ledger;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @SpyBean
+    private BookingJdbcRepo jdbcRepo;
+
+    private final LocalDate date = LocalDate.now().plusDays(5);
+
+    @AfterEach
+    void tearDown() {
+        repo.deleteAll();
+        jdbc.update("DELETE FROM slot_occupancy");
+        ledger.seed();
+    }
+
+    @Test
+    void whenImportingMoreThanCapacity_thenOnlyCapacityIsBooked() {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        List<BookingRequestDTO> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            requests.add(newRequest(i));
+        }
+
+        List<ImportResultDTO> results = importService.importBookings(requests);
+
+        assertEquals(20, results.size());
+        assertEquals(15, results.stream().filter(ImportResultDTO::isAccepted).count());
+        assertFalse(results.get(19).isAccepted());
+        assertEquals(20, results.get(19).getRow());
+        assertEquals(15, ledger.count("LISBOA", date, Slot.MORNING));
+
+        BookingResponseDTO imported = bookingService.getBookingByToken(results.get(0).getToken());
+        assertEquals(Status.RECEIVED, imported.getStatus());
+        assertEquals("Old sofa 0", imported.getDescription());
+    }
+
+    @Test
+    void whenRowIsInvalid_thenOthersAreStillImported() {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        BookingRequestDTO past = newRequest(1);
+        past.setCollectionDate(LocalDate.now().minusDays(1));
+        BookingRequestDTO missingDescription = newRequest(2);
+        missingDescription.setDescription(null);
+
+        List<ImportResultDTO> results = importService.importBookings(
+                List.of(newRequest(0), past, missingDescription));
+
+        assertTrue(results.get(0).isAccepted());
+        assertFalse(results.get(1).isAccepted());
+        assertEquals("Booking date cannot be in the past", results.get(1).getMessage());
+        assertFalse(results.get(2).isAccepted());
+        assertEquals(1, repo.count());
+    }
+
+    @Test
+    void whenImportingCsv_thenQuotedFieldsAndBadRowsAreHandled() throws Exception {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        String csv = "municipality,description,collectionDate,timeSlot,contactInfo,address\r\n"
+                + "LISBOA,\"Sofa, \"\"green\"\"\"," + date + ",morning,a@example.com,Street 1\r\n"
+                + "LISBOA,Table,not-a-date,MORNING,b@example.com,Street 2\r\n"
+                + "LISBOA,Chair," + date + ",EVENING,c@example.com,\"Street 3\nFloor 2\"\r\n";
+
+        List<ImportResultDTO> results = importService.importCsv(new StringReader(csv));
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isAccepted());
+        assertFalse(results.get(1).isAccepted());
+        assertEquals(2, results.get(1).getRow());
+        assertTrue(results.get(2).isAccepted());
+        assertEquals("Sofa, \"green\"",
+                bookingService.getBookingByToken(results.get(0).getToken()).getDescription());
+    }
+
+    @Test
+    void whenCsvHasBlankLines_thenRowsKeepTheirFileLineNumbers() throws Exception {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        String csv = "municipality,description,collectionDate,timeSlot,contactInfo,address\n"
+                + "LISBOA,Sofa," + date + ",MORNING,a@example.com,Street 1\n"
+                + "\n"
+                + "LISBOA,Table,not-a-date,MORNING,b@example.com,Street 2\n";
+
+        List<ImportResultDTO> results = importService.importCsv(new StringReader(csv));
+
+        assertEquals(2, results.size());
+        assertEquals(1, results.get(0).getRow());
+        assertEquals(3, results.get(1).getRow());
+        assertFalse(results.get(1).isAccepted());
+    }
+
+    @Test
+    void whenCsvSlotWasFilledElsewhere_thenOnlyItsRowsAreRejected() throws Exception {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        // booked through another instance -- this one's ledger knows nothing about it
+        jdbc.update("INSERT INTO slot_occupancy (municipality, collection_date, time_slot, booked) "
+                + "VALUES ('LISBOA', ?, 'EVENING', 15)", date);
+        String csv = "municipality,description,collectionDate,timeSlot,contactInfo,address\n"
+                + "LISBOA,Sofa," + date + ",MORNING,a@example.com,Street 1\n"
+                + "LISBOA,Table," + date + ",MORNING,b@example.com,Street 2\n"
+                + "LISBOA,Chair," + date + ",EVENING,c@example.com,Street 3\n";
+
+        List<ImportResultDTO> results = importService.importCsv(new StringReader(csv));
+
+        assertTrue(results.get(0).isAccepted());
+        assertTrue(results.get(1).isAccepted());
+        assertFalse(results.get(2).isAccepted());
+        assertTrue(results.get(2).getMessage().startsWith("No capacity available"));
+        assertEquals(2, repo.count());
+        assertEquals(2, booked(Slot.MORNING));
+        assertEquals(15, booked(Slot.EVENING));
+        assertEquals(0, ledger.count("LISBOA", date, Slot.EVENING));
+    }
+
+    @Test
+    void whenCsvInsertFails_thenOccupancyIsRolledBack() {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        doThrow(new DataAccessResourceFailureException("connection lost")).when(jdbcRepo).insertBookings(any());
+        String csv = "municipality,description,collectionDate,timeSlot,contactInfo,address\n"
+                + "LISBOA,Sofa," + date + ",MORNING,a@example.com,Street 1\n"
+                + "LISBOA,Chair," + date + ",EVENING,c@example.com,Street 3\n";
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> importService.importCsv(new StringReader(csv)));
+
+        assertEquals(0, repo.count());
+        assertEquals(0, booked(Slot.MORNING));
+        assertEquals(0, booked(Slot.EVENING));
+        assertEquals(0, ledger.count("LISBOA", date, Slot.MORNING));
+    }
+
+    @Test
+    void whenImportIsTooLarge_thenRejected() {
+        List<BookingRequestDTO> requests = Collections.nCopies(BookingImportService.MAX_ROWS + 1, newRequest(0));
+
+        assertThrows(InvalidBookingException.class, () -> importService.importBookings(requests));
+    }
+
+    @Test
+    void whenCsvIsTooLargeCountingUnreadableRows_thenRejected() {
+        StringBuilder csv = new StringBuilder("municipality,description,collectionDate,timeSlot,contactInfo,address\n");
+        for (int i = 0; i <= BookingImportService.MAX_ROWS; i++) {
+            csv.append("LISBOA,Sofa,not-a-date,MORNING,a@example.com,Street 1\n");
+        }
+
+        assertThrows(InvalidBookingException.class, () -> importService.importCsv(new StringReader(csv.toString())));
+    }
+
+    private int booked(Slot slot) {
+        List<Integer> booked = jdbc.queryForList("SELECT booked FROM slot_occupancy "
+                + "WHERE municipality = 'LISBOA' AND collection_date = ? AND time_slot = ?", Integer.class,
+                date, slot.name());
+        return booked.isEmpty() ? 0 : booked.get(0);
+    }
+
+    private BookingRequestDTO newRequest(int n) {
+        BookingRequestDTO request = new BookingRequestDTO();
+        request.setMunicipality("LISBOA");
+        request.setDescription("Old sofa " + n);
+        request.setCollectionDate(date);
+        request.setTimeSlot(Slot.MORNING);
+        request.setContactInfo("user" + n + "@example.com");
+        request.setAddress("Abc Main Str. n" + n);
+        return request;
+    }
+}
@@ -0,0 +1,110 @@
+package tqs.integration;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import jakarta.persistence.EntityManagerFactory;
+import tqs.data.BookingRequest;
+import tqs.data.BookingRequestRepo;
+import tqs.data.Slot;
+import tqs.data.Status;
+import tqs.dto.BookingResponseDTO;
+import tqs.services.BookingService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// listing endpoints must not issue one history query per booking
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+class BookingListingQueryCountIntegrationTest {
+
+    // one query for the bookings, one batched query for their history
+    private static final long EXPECTED_STATEMENTS = 2;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRequestRepo repo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private final LocalDate date = LocalDate.now().plusDays(2);
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repo.deleteAll();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 3, 60 })
+    void whenListingByStatus_thenStatementCountIsConstant(int size) {
+        saveAssignedBookings(size);
+
+        statistics.clear();
+        List<BookingResponseDTO> result = bookingService.getBookingsByStatus(Status.ASSIGNED);
+
+        assertEquals(size, result.size());
+        assertTrue(result.stream().allMatch(dto -> dto.getHistory().size() == 1));
+        assertEquals(EXPECTED_STATEMENTS, statistics.getPrepareStatementCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 3, 60 })
+    void whenListingByDateRange_thenStatementCountIsConstant(int size) {
+        saveAssignedBookings(size);
+
+        statistics.clear();
+        List<BookingResponseDTO> result = bookingService.getBookingsByDateRange(date.minusDays(1), date.plusDays(1));
+
+        assertEquals(size, result.size());
+        assertEquals(EXPECTED_STATEMENTS, statistics.getPrepareStatementCount());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 3, 60 })
+    void whenListingByMunicipalityAndDate_thenStatementCountIsConstant(int size) {
+        saveAssignedBookings(size);
+
+        statistics.clear();
+        List<BookingResponseDTO> result = bookingService.getBookingsByMunicipalityByDate("LISBOA", date);
+
+        assertEquals(size, result.size());
+        assertEquals(EXPECTED_STATEMENTS, statistics.getPrepareStatementCount());
+    }
+
+    private void saveAssignedBookings(int size) {
+        List<BookingRequest> bookings = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            BookingRequest booking = new BookingRequest("LISBOA", "Item " + i, date, Slot.values()[i % 3],
+                    "user" + i + "@example.com", "Street " + i);
+            booking.setToken(String.format("TOKEN%015d", i));
+            booking.addStatusHistory(Status.ASSIGNED);
+            bookings.add(booking);
+        }
+        repo.saveAll(bookings);
+    }
+}
@@ -0,0 +1,174 @@
+package tqs.integration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// runs the flyway migrations on a real postgres and checks that every query shape of
+// BookingRequestRepo has an index to use -- the context only starts if hibernate's
+// validate accepts the migrated schema. skipped when docker is not available.
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = {
+        "spring.flyway.enabled=true",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "spring.datasource.driver-class-name=org.postgresql.Driver",
+        "spring.jpa.database-platform=org.hibernate.dialect.PostgreSQLDialect"
+})
+@ActiveProfiles("test")
+class BookingQueryPlanIntegrationTest {
+
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    private static boolean seeded;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void seed() {
+        if (seeded) {
+            return;
+        }
+        jdbc.update("INSERT INTO bookings (token, municipality, description, collection_date, time_slot, status, "
+                + "created_at) SELECT lpad(g::text, 20, '0'), 'M' || (g % 300), 'Item ' || g, "
+                + "current_date + (g % 15), (ARRAY['MORNING','AFTERNOON','EVENING'])[g % 3 + 1], "
+                + "(ARRAY['RECEIVED','ASSIGNED','IN_PROGRESS','COMPLETED','CANCELLED'])[g % 5 + 1], now() "
+                + "FROM generate_series(1, 20000) g");
+        jdbc.update("INSERT INTO booking_status_history (booking_id, status, timestamp) "
+                + "SELECT id, 'RECEIVED', created_at FROM bookings");
+        jdbc.update("INSERT INTO slot_occupancy (municipality, collection_date, time_slot, booked) "
+                + "SELECT municipality, collection_date, time_slot, count(*) FROM bookings "
+                + "GROUP BY municipality, collection_date, time_slot");
+        // vacuum sets the visibility map, without it postgres won't plan index-only scans
+        jdbc.execute("VACUUM ANALYZE bookings");
+        jdbc.execute("VACUUM ANALYZE booking_status_history");
+        jdbc.execute("VACUUM ANALYZE slot_occupancy");
+        seeded = true;
+    }
+
+    // findByToken
+    @Test
+    void tokenLookupUsesTokenIndex() {
+        assertUsesIndex("idx_token", "SELECT * FROM bookings WHERE token = '00000000000000000042'");
+    }
+
+    // findByTokenIn
+    @Test
+    void tokenBatchUsesTokenIndex() {
+        assertUsesIndex("idx_token", "SELECT * FROM bookings WHERE token IN "
+                + "('00000000000000000042', '00000000000000000043', '00000000000000000044')");
+    }
+
+    // countByMunicipalityAndCollectionDateAndTimeSlotAndStatusNot
+    @Test
+    void slotCountIsIndexOnly() {
+        String plan = explain("SELECT count(*) FROM bookings WHERE municipality = 'M42' "
+                + "AND collection_date = current_date + 12 AND time_slot = 'MORNING' AND status <> 'CANCELLED'");
+        assertTrue(plan.contains("Index Only Scan using idx_bookings_slot"), plan);
+    }
+
+    // countBySlotBetween
+    @Test
+    void ledgerSeedAvoidsSeqScan() {
+        assertNoSeqScan("SELECT municipality, collection_date, time_slot, count(*) FROM bookings "
+                + "WHERE collection_date BETWEEN current_date AND current_date + 14 AND status <> 'CANCELLED' "
+                + "GROUP BY municipality, collection_date, time_slot");
+    }
+
+    // findByMunicipalityAndCollectionDate
+    @Test
+    void municipalityDateListingUsesSlotIndex() {
+        assertUsesIndex("idx_bookings_slot",
+                "SELECT * FROM bookings WHERE municipality = 'M42' AND collection_date = current_date + 12");
+    }
+
+    // findByStatus
+    @Test
+    void statusListingUsesStatusIndex() {
+        assertUsesIndex("idx_bookings_status_date", "SELECT * FROM bookings WHERE status = 'ASSIGNED'");
+    }
+
+    // findByCollectionDateBetween, streamByCollectionDateBetween
+    @Test
+    void dateRangeListingUsesDateIndex() {
+        assertUsesIndex("idx_bookings_collection_date",
+                "SELECT * FROM bookings WHERE collection_date BETWEEN current_date + 1 AND current_date + 2");
+    }
+
+    // the paged and keyset variants -- sorted by id, so the planner may walk the primary key instead
+    @Test
+    void pagedListingsAvoidSeqScan() {
+        assertNoSeqScan("SELECT * FROM bookings WHERE status = 'ASSIGNED' AND id > 100 ORDER BY id LIMIT 50");
+        assertNoSeqScan("SELECT * FROM bookings WHERE collection_date BETWEEN current_date AND current_date + 3 "
+                + "ORDER BY id LIMIT 50 OFFSET 50");
+        assertNoSeqScan("SELECT * FROM bookings WHERE municipality = 'M42' AND collection_date = current_date + 12 "
+                + "AND id > 100 ORDER BY id LIMIT 50");
+    }
+
+    // the @BatchSize history load for a page of bookings
+    @Test
+    void historyBatchUsesHistoryIndex() {
+        assertUsesIndex("idx_status_history_booking",
+                "SELECT * FROM booking_status_history WHERE booking_id IN (1, 2, 3, 4, 5) ORDER BY timestamp");
+    }
+
+    // SlotOccupancyRepo.findBetween, for the staff occupancy view
+    @Test
+    void occupancyRangeUsesDateIndex() {
+        assertUsesIndex("idx_slot_occupancy_date", "SELECT * FROM slot_occupancy "
+                + "WHERE collection_date BETWEEN current_date AND current_date + 1 AND booked > 0");
+    }
+
+    private void assertUsesIndex(String index, String sql) {
+        String plan = explain(sql);
+        assertTrue(plan.contains(index), plan);
+        assertFalse(plan.contains("Seq Scan"), plan);
+    }
+
+    private void assertNoSeqScan(String sql) {
+        String plan = explain(sql);
+        assertFalse(plan.contains("Seq Scan"), plan);
+    }
+
+    // seq scans are switched off so the plan shows whether an index can serve the query at
+    // all, independent of how many rows the test table happens to have
+    private String explain(String sql) {
+        return jdbc.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET enable_seqscan = off");
+                List<String> lines = new ArrayList<>();
+                try (ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+                    while (rs.next()) {
+                        lines.add(rs.getString(1));
+                    }
+                }
+                statement.execute("RESET enable_seqscan");
+                return String.join("\n", lines);
+            }
+        });
+    }
+}
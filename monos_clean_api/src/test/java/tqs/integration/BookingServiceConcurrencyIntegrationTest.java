@@ -0,0 +1,224 @@
+package tqs.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import tqs.data.BookingRequestRepo;
+import tqs.data.Slot;
+import tqs.data.Status;
+import tqs.dto.BookingRequestDTO;
+import tqs.dto.BookingResponseDTO;
+import tqs.exceptions.InvalidBookingException;
+import tqs.services.BookingCache;
+import tqs.services.BookingService;
+import tqs.services.MunicipalityService;
+import tqs.services.SlotCapacityLedger;
+import tqs.services.TokenGenerator;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+class BookingServiceConcurrencyIntegrationTest {
+
+    private static final int REQUESTS = 1000;
+    private static final int THREADS = 64;
+
+    @MockBean
+    private MunicipalityService municipalityService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRequestRepo repo;
+
+    @SpyBean
+    private BookingCache cache;
+
+    @Autowired
+    private SlotCapacityLedger ledger;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @SpyBean
+    private TokenGenerator tokenGenerator;
+
+    @AfterEach
+    void tearDown() {
+        repo.deleteAll();
+        jdbc.update("DELETE FROM slot_occupancy");
+        ledger.seed();
+    }
+
+    @Test
+    void whenManyParallelCreatesForOneSlot_thenExactlyCapacityIsBooked() throws Exception {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        LocalDate date = LocalDate.now().plusDays(3);
+
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            BookingRequestDTO request = newRequest(date, i);
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    bookingService.createBooking(request);
+                    created.incrementAndGet();
+                } catch (InvalidBookingException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS); // rethrows anything other than a capacity rejection
+        }
+        pool.shutdown();
+
+        assertEquals(15, created.get());
+        assertEquals(REQUESTS - 15, rejected.get());
+        assertEquals(15, repo.countByMunicipalityAndCollectionDateAndTimeSlotAndStatusNot("LISBOA", date,
+                Slot.MORNING, Status.CANCELLED));
+        assertEquals(15, ledger.count("LISBOA", date, Slot.MORNING));
+    }
+
+    @Test
+    void whenBookingIsCancelled_thenItsPlaceCanBeTakenAgain() {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        LocalDate date = LocalDate.now().plusDays(4);
+
+        String firstToken = null;
+        for (int i = 0; i < 15; i++) {
+            String token = bookingService.createBooking(newRequest(date, i)).getToken();
+            if (firstToken == null) {
+                firstToken = token;
+            }
+        }
+        assertThrows(InvalidBookingException.class, () -> bookingService.createBooking(newRequest(date, 15)));
+
+        bookingService.cancelBookingByToken(firstToken);
+
+        assertNotNull(bookingService.createBooking(newRequest(date, 16)).getToken());
+        assertEquals(15, ledger.count("LISBOA", date, Slot.MORNING));
+    }
+
+    @Test
+    void whenCreateRollsBackAfterReturning_thenPlaceIsGivenBack() {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        LocalDate date = LocalDate.now().plusDays(5);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bookingService.createBooking(newRequest(date, 0));
+            assertEquals(1, ledger.count("LISBOA", date, Slot.MORNING));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, repo.count());
+        assertEquals(0, ledger.count("LISBOA", date, Slot.MORNING));
+    }
+
+    @Test
+    void whenCancelRollsBack_thenPlaceStaysTaken() {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        LocalDate date = LocalDate.now().plusDays(6);
+        String token = bookingService.createBooking(newRequest(date, 0)).getToken();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bookingService.cancelBookingByToken(token);
+            assertEquals(1, ledger.count("LISBOA", date, Slot.MORNING));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, ledger.count("LISBOA", date, Slot.MORNING));
+        assertEquals(Status.RECEIVED, bookingService.getBookingByToken(token).getStatus());
+    }
+
+    @Test
+    void whenTokenCollides_thenInsertIsRetriedInTheSameTransaction() {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        LocalDate date = LocalDate.now().plusDays(8);
+        String taken = bookingService.createBooking(newRequest(date, 0)).getToken();
+
+        doReturn(taken).doCallRealMethod().when(tokenGenerator).next();
+        String token = bookingService.createBooking(newRequest(date, 1)).getToken();
+
+        assertNotEquals(taken, token);
+        assertEquals(2, repo.count());
+        assertEquals("Old sofa 1", bookingService.getBookingByToken(token).getDescription());
+    }
+
+    @Test
+    void whenReadRacesAnUpdate_thenOldStatusIsNotCached() throws Exception {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        String token = bookingService.createBooking(newRequest(LocalDate.now().plusDays(7), 0)).getToken();
+
+        // the update commits, and evicts the token, after the read loaded the old row but before it is cached
+        AtomicBoolean interleaved = new AtomicBoolean();
+        doAnswer(invocation -> {
+            if (interleaved.compareAndSet(false, true)) {
+                ExecutorService other = Executors.newSingleThreadExecutor();
+                other.submit(() -> bookingService.updateBookingStatus(token, Status.ASSIGNED))
+                        .get(10, TimeUnit.SECONDS);
+                other.shutdown();
+            }
+            return invocation.callRealMethod();
+        }).when(cache).put(eq(token), any(BookingResponseDTO.class), anyLong());
+
+        assertEquals(Status.RECEIVED, bookingService.getBookingByToken(token).getStatus());
+        assertTrue(interleaved.get());
+        assertEquals(Status.ASSIGNED, bookingService.getBookingByToken(token).getStatus());
+    }
+
+    private BookingRequestDTO newRequest(LocalDate date, int n) {
+        BookingRequestDTO request = new BookingRequestDTO();
+        request.setMunicipality("LISBOA");
+        request.setDescription("Old sofa " + n);
+        request.setCollectionDate(date);
+        request.setTimeSlot(Slot.MORNING);
+        request.setContactInfo("user" + n + "@example.com");
+        request.setAddress("Abc Main Str. n" + n);
+        return request;
+    }
+}
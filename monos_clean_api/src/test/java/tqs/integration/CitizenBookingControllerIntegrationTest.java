@@ -7,18 +7,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import tqs.data.Slot;
 import tqs.data.Status;
 import tqs.dto.BookingRequestDTO;
 import tqs.dto.BookingResponseDTO;
+import tqs.dto.BookingStatusEvent;
 import tqs.services.BookingService;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -39,6 +44,9 @@ class CitizenBookingControllerIntegrationTest {
         @Autowired
         private ObjectMapper objectMapper;
 
+        @Autowired
+        private ApplicationEventPublisher eventPublisher;
+
         @MockBean
         private BookingService bookingService;
 
@@ -105,11 +113,11 @@ class CitizenBookingControllerIntegrationTest {
 
         @Test
         void shouldReturnNotFoundWhenBookingDoesNotExist() throws Exception {
-                when(bookingService.getBookingByToken("UNKNOWN"))
+                when(bookingService.getBookingByToken("UNKNOWN0000000000000"))
                                 .thenThrow(new tqs.exceptions.InvalidBookingException(
-                                                "No booking found under token: UNKNOWN"));
+                                                "No booking found under token: UNKNOWN0000000000000"));
 
-                mockMvc.perform(get("/api/bookings/UNKNOWN"))
+                mockMvc.perform(get("/api/bookings/UNKNOWN0000000000000"))
                                 .andExpect(status().isNotFound());
         }
 
@@ -125,10 +133,104 @@ class CitizenBookingControllerIntegrationTest {
 
         @Test
         void shouldReturnNotFoundWhenCancelingNonExistentBooking() throws Exception {
-                doThrow(new tqs.exceptions.InvalidBookingException("No booking found under token: UNKNOWN"))
-                                .when(bookingService).cancelBookingByToken("UNKNOWN");
+                doThrow(new tqs.exceptions.InvalidBookingException(
+                                "No booking found under token: UNKNOWN0000000000000"))
+                                .when(bookingService).cancelBookingByToken("UNKNOWN0000000000000");
+
+                mockMvc.perform(delete("/api/bookings/UNKNOWN0000000000000"))
+                                .andExpect(status().isNotFound());
+        }
 
-                mockMvc.perform(delete("/api/bookings/UNKNOWN"))
+        @Test
+        void shouldReturnNotFoundForMalformedTokenWithoutCallingService() throws Exception {
+                mockMvc.perform(get("/api/bookings/not-a-token"))
                                 .andExpect(status().isNotFound());
+                mockMvc.perform(delete("/api/bookings/token1234567890abcde"))
+                                .andExpect(status().isNotFound());
+
+                verifyNoInteractions(bookingService);
+        }
+
+        @Test
+        void shouldAnswerNotModifiedWhileBookingIsUnchanged() throws Exception {
+                validResponse.setCreatedAt(LocalDateTime.now());
+                when(bookingService.getBookingByToken("TOKEN1234567890ABCDE")).thenReturn(validResponse);
+
+                String etag = mockMvc.perform(get("/api/bookings/TOKEN1234567890ABCDE"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-cache"))
+                                .andReturn().getResponse().getHeader("ETag");
+
+                mockMvc.perform(get("/api/bookings/TOKEN1234567890ABCDE").header("If-None-Match", etag))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+
+                // a status change stamps updatedAt, which changes the tag
+                validResponse.setStatus(Status.ASSIGNED);
+                validResponse.setUpdatedAt(LocalDateTime.now().plusSeconds(1));
+                mockMvc.perform(get("/api/bookings/TOKEN1234567890ABCDE").header("If-None-Match", etag))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.status").value("ASSIGNED"));
+        }
+
+        @Test
+        void shouldStreamStatusChangesUntilBookingIsFinal() throws Exception {
+                when(bookingService.getBookingByTokenUncached("TOKEN1234567890ABCDE")).thenReturn(validResponse);
+
+                MvcResult result = mockMvc.perform(get("/api/bookings/TOKEN1234567890ABCDE/events"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                eventPublisher.publishEvent(new BookingStatusEvent("TOKEN1234567890ABCDE", "LISBOA",
+                                Status.COMPLETED, LocalDateTime.now()));
+                result.getAsyncResult(5000); // the stream completes once the booking is final
+
+                String body = result.getResponse().getContentAsString();
+                assertTrue(body.contains("\"status\":\"RECEIVED\""));
+                assertTrue(body.contains("\"status\":\"COMPLETED\""));
+                assertTrue(body.indexOf("RECEIVED") < body.indexOf("COMPLETED"));
+        }
+
+        @Test
+        void shouldStreamBackToBackChangesInOrder() throws Exception {
+                when(bookingService.getBookingByTokenUncached("TOKEN1234567890ABCDE")).thenReturn(validResponse);
+                LocalDateTime now = LocalDateTime.now();
+
+                MvcResult result = mockMvc.perform(get("/api/bookings/TOKEN1234567890ABCDE/events"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                Status[] changes = { Status.ASSIGNED, Status.IN_PROGRESS, Status.COMPLETED };
+                for (int i = 0; i < changes.length; i++) {
+                        eventPublisher.publishEvent(new BookingStatusEvent("TOKEN1234567890ABCDE", "LISBOA",
+                                        changes[i], now.plusSeconds(i + 1)));
+                }
+                result.getAsyncResult(5000);
+
+                String body = result.getResponse().getContentAsString();
+                assertTrue(body.indexOf("RECEIVED") < body.indexOf("ASSIGNED"));
+                assertTrue(body.indexOf("ASSIGNED") < body.indexOf("IN_PROGRESS"));
+                assertTrue(body.indexOf("IN_PROGRESS") < body.indexOf("COMPLETED"));
+        }
+
+        @Test
+        void shouldSkipStaleChangeThatArrivesLate() throws Exception {
+                validResponse.setUpdatedAt(LocalDateTime.now());
+                when(bookingService.getBookingByTokenUncached("TOKEN1234567890ABCDE")).thenReturn(validResponse);
+
+                MvcResult result = mockMvc.perform(get("/api/bookings/TOKEN1234567890ABCDE/events"))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                // committed before the state was read, but its event only shows up afterwards
+                eventPublisher.publishEvent(new BookingStatusEvent("TOKEN1234567890ABCDE", "LISBOA",
+                                Status.ASSIGNED, validResponse.getUpdatedAt().minusSeconds(1)));
+                eventPublisher.publishEvent(new BookingStatusEvent("TOKEN1234567890ABCDE", "LISBOA",
+                                Status.CANCELLED, validResponse.getUpdatedAt().plusSeconds(1)));
+                result.getAsyncResult(5000);
+
+                String body = result.getResponse().getContentAsString();
+                assertFalse(body.contains("ASSIGNED"));
+                assertTrue(body.indexOf("RECEIVED") < body.indexOf("CANCELLED"));
         }
-}
\ No newline at end of file
+}
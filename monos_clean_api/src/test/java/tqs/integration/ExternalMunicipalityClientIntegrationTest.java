@@ -1,64 +1,91 @@
 package tqs.integration;
 
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.context.TestConfiguration;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Primary;
 import org.springframework.test.context.ActiveProfiles;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 
 import tqs.services.ExternalMunicipalityClient;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
 
 @SpringBootTest(properties = {
         "spring.jpa.hibernate.ddl-auto=create-drop",
         "spring.datasource.driver-class-name=org.h2.Driver",
-        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+        "municipalities.api.failure-threshold=100"
 })
 @ActiveProfiles("test")
 class ExternalMunicipalityClientIntegrationTest {
 
-    private static final String API_URL = "https://json.geoapi.pt/municipio";
-
-    @TestConfiguration
-    static class TestConfig {
-        @Bean
-        @Primary
-        public RestTemplate restTemplate() {
-            return mock(RestTemplate.class);
+    private static final String ETAG = "\"municipios-v1\"";
+
+    // stands in for geoapi.pt
+    private static final HttpServer server = startServer();
+    private static volatile int status = 200;
+    private static volatile String body = "[\"LISBOA\",\"PORTO\",\"BRAGA\"]";
+    private static volatile String lastIfNoneMatch;
+
+    private static HttpServer startServer() {
+        try {
+            HttpServer stub = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            stub.createContext("/municipio", exchange -> {
+                lastIfNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+                if (status == 200 && ETAG.equals(lastIfNoneMatch)) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            });
+            stub.start();
+            return stub;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+    }
 
-        @Bean
-        @Primary
-        public RestTemplateBuilder restTemplateBuilder() {
-            RestTemplate mockRestTemplate = restTemplate();
-            RestTemplateBuilder builder = mock(RestTemplateBuilder.class);
-            when(builder.build()).thenReturn(mockRestTemplate);
-            return builder;
-        }
+    @DynamicPropertySource
+    static void apiUrl(DynamicPropertyRegistry registry) {
+        registry.add("municipalities.api.url",
+                () -> "http://localhost:" + server.getAddress().getPort() + "/municipio");
+    }
+
+    @AfterAll
+    static void stopServer() {
+        server.stop(0);
     }
 
     @Autowired
     private ExternalMunicipalityClient client;
 
-    @Autowired
-    private RestTemplate restTemplate;
+    @BeforeEach
+    void setUp() {
+        status = 200;
+        body = "[\"LISBOA\",\"PORTO\",\"BRAGA\"]";
+    }
 
     @Test
     void whenFetchMunicipalities_withRealSpringContext_thenReturnsList() {
-        String[] mockResponse = { "LISBOA", "PORTO", "BRAGA" };
-        when(restTemplate.getForObject(API_URL, String[].class))
-                .thenReturn(mockResponse);
-
         List<String> result = client.fetchMunicipalityNamesRaw();
 
         assertNotNull(result);
@@ -67,21 +94,19 @@ class ExternalMunicipalityClientIntegrationTest {
     }
 
     @Test
-    void whenApiReturnsNull_withRealSpringContext_thenReturnEmptyList() {
-        when(restTemplate.getForObject(API_URL, String[].class))
-                .thenReturn(null);
+    void whenFetchedTwice_withRealSpringContext_thenSecondCallIsConditional() {
+        List<String> first = client.fetchMunicipalityNamesRaw();
+        List<String> second = client.fetchMunicipalityNamesRaw();
 
-        List<String> result = client.fetchMunicipalityNamesRaw();
-
-        assertNotNull(result);
-        assertTrue(result.isEmpty());
+        assertEquals(ETAG, lastIfNoneMatch);
+        assertSame(first, second);
     }
 
     @Test
     void whenApiFails_withRealSpringContext_thenThrowsRuntimeException() {
-        when(restTemplate.getForObject(API_URL, String[].class))
-                .thenThrow(new RestClientException("API Error"));
+        status = 503;
+        body = "unavailable";
 
         assertThrows(RuntimeException.class, () -> client.fetchMunicipalityNamesRaw());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+package tqs.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tqs.config.MunicipalityApiProperties;
+import tqs.services.CircuitBreaker;
+import tqs.services.ExternalMunicipalityClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// runs the client against a local stub of geoapi.pt that can be made slow or broken
+class ExternalMunicipalityClientResilienceTest {
+
+    private static final String BODY = "[\"Lisboa\",\"Porto\",\"Braga\"]";
+
+    private HttpServer server;
+    private final AtomicInteger hits = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile long delayMs = 0;
+    private volatile long bodyDelayMs = 0;
+    private volatile CountDownLatch hold = new CountDownLatch(0);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/municipio", exchange -> {
+            hits.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+                hold.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body, 0, 1);
+                out.flush();
+                Thread.sleep(bodyDelayMs);
+                out.write(body, 1, body.length - 1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        hold.countDown();
+        server.stop(0);
+    }
+
+    private ExternalMunicipalityClient client(Duration readTimeout, Duration openDuration, int maxConcurrent) {
+        String url = "http://localhost:" + server.getAddress().getPort() + "/municipio";
+        return new ExternalMunicipalityClient(new ObjectMapper(), new MunicipalityApiProperties(
+                url, Duration.ofSeconds(1), readTimeout, 3, openDuration, maxConcurrent, Duration.ofMillis(50)));
+    }
+
+    @Test
+    void whenUpstreamHealthy_thenReturnsList() {
+        ExternalMunicipalityClient client = client(Duration.ofSeconds(2), Duration.ofSeconds(30), 2);
+
+        List<String> result = client.fetchMunicipalityNamesRaw();
+
+        assertEquals(List.of("Lisboa", "Porto", "Braga"), result);
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitState());
+    }
+
+    @Test
+    void whenUpstreamHangs_thenReadTimeoutCutsTheCallShort() {
+        delayMs = 3000;
+        ExternalMunicipalityClient client = client(Duration.ofMillis(200), Duration.ofSeconds(30), 2);
+
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, client::fetchMunicipalityNamesRaw);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < 2000, "call took " + elapsedMs + "ms");
+        assertEquals(1, client.getFailedCalls());
+    }
+
+    @Test
+    void whenUpstreamStallsMidBody_thenReadTimeoutStillCutsTheCallShort() {
+        bodyDelayMs = 3000;
+        ExternalMunicipalityClient client = client(Duration.ofMillis(200), Duration.ofSeconds(30), 2);
+
+        long start = System.nanoTime();
+        assertThrows(RuntimeException.class, client::fetchMunicipalityNamesRaw);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMs < 2000, "call took " + elapsedMs + "ms");
+        assertEquals(1, client.getFailedCalls());
+    }
+
+    @Test
+    void whenUpstreamKeepsFailing_thenCircuitOpensThenRecoversAfterTrialCall() throws Exception {
+        status = 503;
+        ExternalMunicipalityClient client = client(Duration.ofSeconds(2), Duration.ofMillis(300), 2);
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(RuntimeException.class, client::fetchMunicipalityNamesRaw);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
+
+        // open circuit -- fails fast without reaching the server
+        assertThrows(RuntimeException.class, client::fetchMunicipalityNamesRaw);
+        assertEquals(3, hits.get());
+        assertEquals(1, client.getRejectedCalls());
+
+        // after the open duration one trial call goes through and closes the circuit
+        status = 200;
+        Thread.sleep(400);
+        assertEquals(3, client.fetchMunicipalityNamesRaw().size());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitState());
+        assertEquals(4, hits.get());
+    }
+
+    @Test
+    void whenBulkheadIsFull_thenExtraCallsAreRejected() throws Exception {
+        hold = new CountDownLatch(1);
+        ExternalMunicipalityClient client = client(Duration.ofSeconds(5), Duration.ofSeconds(30), 1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+
+        Future<List<String>> inFlight = pool.submit(client::fetchMunicipalityNamesRaw);
+        while (hits.get() == 0) {
+            Thread.sleep(10);
+        }
+
+        assertThrows(RuntimeException.class, client::fetchMunicipalityNamesRaw);
+        assertEquals(1, client.getRejectedCalls());
+        assertEquals(0, client.getAvailableConcurrentCalls());
+
+        hold.countDown();
+        assertEquals(3, inFlight.get(5, TimeUnit.SECONDS).size());
+        assertEquals(1, client.getAvailableConcurrentCalls());
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,98 @@
+package tqs.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import tqs.data.Slot;
+import tqs.dto.MunicipalityDTO;
+import tqs.services.MunicipalityService;
+import tqs.services.SlotCapacityLedger;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "spring.datasource.driver-class-name=org.h2.Driver",
+                "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class MunicipalitiesControllerIntegrationTest {
+
+        @Autowired
+        private MockMvc mockMvc;
+
+        @MockBean
+        private MunicipalityService municipalityService;
+
+        @Autowired
+        private SlotCapacityLedger ledger;
+
+        @AfterEach
+        void tearDown() {
+                ledger.seed();
+        }
+
+        @Test
+        void shouldServeListWithEtagAndCacheControl() throws Exception {
+                when(municipalityService.getListing()).thenReturn(new MunicipalityService.Listing(
+                                List.of(new MunicipalityDTO("Lisboa"), new MunicipalityDTO("Porto")), "2-abc"));
+
+                mockMvc.perform(get("/api/municipalities"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"2-abc\""))
+                                .andExpect(header().string("Cache-Control", "max-age=3600, public"))
+                                .andExpect(jsonPath("$.length()").value(2))
+                                .andExpect(jsonPath("$[0].code").value("LISBOA"));
+        }
+
+        @Test
+        void shouldAnswerNotModifiedForCurrentVersion() throws Exception {
+                when(municipalityService.getListing()).thenReturn(new MunicipalityService.Listing(
+                                List.of(new MunicipalityDTO("Lisboa")), "1-abc"));
+
+                mockMvc.perform(get("/api/municipalities").header("If-None-Match", "\"1-abc\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(content().string(""));
+        }
+
+        @Test
+        void shouldServeRemainingPlacesPerDayAndSlot() throws Exception {
+                when(municipalityService.isValid("LISBOA")).thenReturn(true);
+                LocalDate tomorrow = LocalDate.now().plusDays(1);
+                for (int i = 0; i < 15; i++) {
+                        ledger.tryReserve("LISBOA", tomorrow, Slot.MORNING, 15);
+                }
+                ledger.tryReserve("LISBOA", tomorrow, Slot.EVENING, 15);
+
+                mockMvc.perform(get("/api/municipalities/LISBOA/availability"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Cache-Control", "no-store"))
+                                .andExpect(jsonPath("$.capacity").value(15))
+                                .andExpect(jsonPath("$.days.length()").value(SlotCapacityLedger.WINDOW_DAYS + 1))
+                                .andExpect(jsonPath("$.days[0].date").value(LocalDate.now().toString()))
+                                .andExpect(jsonPath("$.days[0].remaining.MORNING").value(15))
+                                .andExpect(jsonPath("$.days[1].remaining.MORNING").value(0))
+                                .andExpect(jsonPath("$.days[1].remaining.AFTERNOON").value(15))
+                                .andExpect(jsonPath("$.days[1].remaining.EVENING").value(14));
+        }
+
+        @Test
+        void shouldRejectAvailabilityForUnknownMunicipality() throws Exception {
+                when(municipalityService.isValid("NOWHERE")).thenReturn(false);
+
+                mockMvc.perform(get("/api/municipalities/NOWHERE/availability"))
+                                .andExpect(status().isBadRequest());
+        }
+}
@@ -55,13 +55,13 @@ class MunicipalityServiceIntegrationTest {
             fail("Could not manipulate cache expiry");
         }
 
-        // second call -- should refresh cache
+        // second call -- serves the cached list and refreshes it in the background
         List<MunicipalityDTO> result2 = service.getAllMunicipalities();
         List<String> codes2 = result2.stream()
                 .map(MunicipalityDTO::getCode)
                 .collect(Collectors.toList());
 
-        verify(client, times(2)).fetchMunicipalityNamesRaw();
+        verify(client, timeout(1000).times(2)).fetchMunicipalityNamesRaw();
 
         // compare municipality codes
         assertEquals(codes1.size(), codes2.size());
@@ -0,0 +1,133 @@
+package tqs.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import tqs.data.BookingRequestRepo;
+import tqs.data.Slot;
+import tqs.data.Status;
+import tqs.dto.BookingRequestDTO;
+import tqs.exceptions.InvalidBookingException;
+import tqs.services.BookingService;
+import tqs.services.MunicipalityService;
+import tqs.services.SlotCapacityLedger;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class SlotOccupancyIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private MunicipalityService municipalityService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRequestRepo repo;
+
+    @Autowired
+    private SlotCapacityLedger ledger;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    private final LocalDate date = LocalDate.now().plusDays(6);
+
+    @AfterEach
+    void tearDown() {
+        repo.deleteAll();
+        jdbc.update("DELETE FROM slot_occupancy");
+        ledger.seed();
+    }
+
+    @Test
+    void whenBookingsAreCreatedAndCancelled_thenOccupancyFollows() throws Exception {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        String first = bookingService.createBooking(newRequest("LISBOA", Slot.MORNING)).getToken();
+        bookingService.createBooking(newRequest("LISBOA", Slot.MORNING));
+        bookingService.createBooking(newRequest("PORTO", Slot.EVENING));
+        String staffCancelled = bookingService.createBooking(newRequest("PORTO", Slot.AFTERNOON)).getToken();
+
+        bookingService.cancelBookingByToken(first);
+        bookingService.updateBookingStatus(staffCancelled, Status.CANCELLED);
+
+        mockMvc.perform(get("/api/staff/occupancy")
+                .param("from", date.toString())
+                .param("to", date.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].municipality").value("LISBOA"))
+                .andExpect(jsonPath("$[0].slot").value("MORNING"))
+                .andExpect(jsonPath("$[0].booked").value(1))
+                .andExpect(jsonPath("$[0].capacity").value(15))
+                .andExpect(jsonPath("$[1].municipality").value("PORTO"))
+                .andExpect(jsonPath("$[1].slot").value("EVENING"));
+    }
+
+    @Test
+    void whenBulkCancelling_thenOccupancyIsReleased() {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        String a = bookingService.createBooking(newRequest("LISBOA", Slot.MORNING)).getToken();
+        String b = bookingService.createBooking(newRequest("LISBOA", Slot.MORNING)).getToken();
+
+        bookingService.updateBookingStatuses(List.of(a, b), Status.CANCELLED);
+
+        assertTrue(bookingService.getOccupancy(date, date).isEmpty());
+    }
+
+    @Test
+    void whenAnotherInstanceFilledTheSlot_thenBookingIsRejected() {
+        when(municipalityService.isValid(anyString())).thenReturn(true);
+        // the counters are shared through the database, this instance's ledger is still empty
+        jdbc.update("INSERT INTO slot_occupancy (municipality, collection_date, time_slot, booked) "
+                + "VALUES ('LISBOA', ?, 'MORNING', 15)", date);
+
+        assertThrows(InvalidBookingException.class,
+                () -> bookingService.createBooking(newRequest("LISBOA", Slot.MORNING)));
+        assertEquals(0, repo.count());
+        assertEquals(0, ledger.count("LISBOA", date, Slot.MORNING));
+    }
+
+    @Test
+    void whenRangeIsInverted_thenBadRequest() throws Exception {
+        mockMvc.perform(get("/api/staff/occupancy")
+                .param("from", date.toString())
+                .param("to", date.minusDays(1).toString()))
+                .andExpect(status().isBadRequest());
+    }
+
+    private BookingRequestDTO newRequest(String municipality, Slot slot) {
+        BookingRequestDTO request = new BookingRequestDTO();
+        request.setMunicipality(municipality);
+        request.setDescription("Old sofa");
+        request.setCollectionDate(date);
+        request.setTimeSlot(slot);
+        request.setContactInfo("user@example.com");
+        request.setAddress("Abc Main Str. n1");
+        return request;
+    }
+}
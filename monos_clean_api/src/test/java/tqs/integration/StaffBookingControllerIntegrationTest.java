@@ -10,7 +10,9 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
 import tqs.data.Status;
+import tqs.dto.BookingPageDTO;
 import tqs.dto.BookingResponseDTO;
+import tqs.dto.BulkStatusResultDTO;
 import tqs.services.BookingService;
 
 import java.time.LocalDate;
@@ -58,19 +60,35 @@ class StaffBookingControllerIntegrationTest {
 
         @Test
         void shouldGetAllBookings() throws Exception {
-                when(bookingService.getBookingsByDateRange(any(), any())).thenReturn(mockBookings);
+                when(bookingService.getBookingsByDateRange(any(), any(), eq(0), eq(50), isNull()))
+                                .thenReturn(new BookingPageDTO(mockBookings, null));
 
                 mockMvc.perform(get("/api/staff/bookings"))
                                 .andExpect(status().isOk())
+                                .andExpect(header().doesNotExist("X-Next-Cursor"))
                                 .andExpect(jsonPath("$").isArray())
                                 .andExpect(jsonPath("$.length()").value(2))
                                 .andExpect(jsonPath("$[0].municipality").value("LISBOA"));
         }
 
+        @Test
+        void shouldPassCursorAndExposeNextOne() throws Exception {
+                when(bookingService.getBookingsByDateRange(any(), any(), eq(0), eq(2), eq(40L)))
+                                .thenReturn(new BookingPageDTO(mockBookings, 42L));
+
+                mockMvc.perform(get("/api/staff/bookings")
+                                .param("size", "2")
+                                .param("after", "40"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("X-Next-Cursor", "42"))
+                                .andExpect(jsonPath("$.length()").value(2));
+        }
+
         @Test
         void shouldGetBookingsByMunicipalityAndDate() throws Exception {
-                when(bookingService.getBookingsByMunicipalityByDate(eq("LISBOA"), any(LocalDate.class)))
-                                .thenReturn(Arrays.asList(mockBookings.get(0)));
+                when(bookingService.getBookingsByMunicipalityByDate(eq("LISBOA"), any(LocalDate.class), eq(0),
+                                eq(50), isNull()))
+                                .thenReturn(new BookingPageDTO(Arrays.asList(mockBookings.get(0)), null));
 
                 mockMvc.perform(get("/api/staff/bookings")
                                 .param("municipality", "LISBOA")
@@ -82,11 +100,12 @@ class StaffBookingControllerIntegrationTest {
 
         @Test
         void shouldGetBookingsByStatus() throws Exception {
-                when(bookingService.getBookingsByStatus(Status.RECEIVED))
-                                .thenReturn(Arrays.asList(mockBookings.get(0)));
+                when(bookingService.getBookingsByStatus(Status.RECEIVED, 1, 50, null))
+                                .thenReturn(new BookingPageDTO(Arrays.asList(mockBookings.get(0)), null));
 
                 mockMvc.perform(get("/api/staff/bookings")
-                                .param("status", "RECEIVED"))
+                                .param("status", "RECEIVED")
+                                .param("page", "1"))
                                 .andExpect(status().isOk())
                                 .andExpect(jsonPath("$.length()").value(1))
                                 .andExpect(jsonPath("$[0].status").value("RECEIVED"));
@@ -115,4 +134,43 @@ class StaffBookingControllerIntegrationTest {
                                 .param("newStatus", "INVALID"))
                                 .andExpect(status().isBadRequest());
         }
-}
\ No newline at end of file
+
+        @Test
+        void shouldReturnNotFoundForMalformedTokenWithoutCallingService() throws Exception {
+                mockMvc.perform(patch("/api/staff/bookings/SHORT/update")
+                                .param("newStatus", "ASSIGNED"))
+                                .andExpect(status().isNotFound());
+
+                verifyNoInteractions(bookingService);
+        }
+
+        @Test
+        void shouldBulkUpdateBookings() throws Exception {
+                when(bookingService.updateBookingStatuses(List.of("TOKEN1234567890ABCDE", "TOKEN1234567890ABCDF"),
+                                Status.ASSIGNED)).thenReturn(List.of(
+                                                new BulkStatusResultDTO("TOKEN1234567890ABCDE",
+                                                                BulkStatusResultDTO.Outcome.UPDATED, Status.ASSIGNED,
+                                                                null),
+                                                new BulkStatusResultDTO("TOKEN1234567890ABCDF",
+                                                                BulkStatusResultDTO.Outcome.INVALID_TRANSITION,
+                                                                Status.COMPLETED, "Cannot update")));
+
+                mockMvc.perform(patch("/api/staff/bookings/bulk-update")
+                                .contentType("application/json")
+                                .content("{\"tokens\":[\"TOKEN1234567890ABCDE\",\"TOKEN1234567890ABCDF\"],"
+                                                + "\"newStatus\":\"ASSIGNED\"}"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$[0].outcome").value("UPDATED"))
+                                .andExpect(jsonPath("$[1].outcome").value("INVALID_TRANSITION"));
+        }
+
+        @Test
+        void shouldRejectEmptyBulkUpdate() throws Exception {
+                mockMvc.perform(patch("/api/staff/bookings/bulk-update")
+                                .contentType("application/json")
+                                .content("{\"tokens\":[],\"newStatus\":\"ASSIGNED\"}"))
+                                .andExpect(status().isBadRequest());
+
+                verifyNoInteractions(bookingService);
+        }
+}
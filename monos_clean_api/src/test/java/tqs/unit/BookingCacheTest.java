@@ -0,0 +1,99 @@
+package tqs.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tqs.dto.BookingResponseDTO;
+import tqs.services.BookingCache;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+class BookingCacheTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+    private BookingCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new BookingCache(2, Duration.ofSeconds(10), now::get);
+    }
+
+    @Test
+    void shouldCountHitsAndMisses() {
+        BookingResponseDTO booking = booking("A");
+        assertThat(cache.get("A")).isNull();
+
+        cache.put("A", booking);
+
+        assertThat(cache.get("A")).isSameAs(booking);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTtl() {
+        cache.put("A", booking("A"));
+
+        now.set(10_000);
+
+        assertThat(cache.get("A")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyReadWhenFull() {
+        cache.put("A", booking("A"));
+        cache.put("B", booking("B"));
+        cache.get("A"); // B is now the eldest
+
+        cache.put("C", booking("C"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("B")).isNull();
+        assertThat(cache.get("A")).isNotNull();
+        assertThat(cache.get("C")).isNotNull();
+        assertThat(cache.getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDropInvalidatedEntry() {
+        cache.put("A", booking("A"));
+
+        cache.invalidate("A");
+
+        assertThat(cache.get("A")).isNull();
+    }
+
+    @Test
+    void shouldNotCacheLoadThatRacedAnInvalidation() {
+        long generation = cache.generation("A");
+        BookingResponseDTO loaded = booking("A"); // read before the update committed
+
+        cache.invalidate("A"); // the update's after-commit eviction
+
+        assertThat(cache.put("A", loaded, generation)).isFalse();
+        assertThat(cache.get("A")).isNull();
+        assertThat(cache.put("A", booking("A"), cache.generation("A"))).isTrue();
+        assertThat(cache.get("A")).isNotNull();
+    }
+
+    @Test
+    void shouldKeepCachingOtherTokensAcrossAnInvalidation() {
+        long generation = cache.generation("A");
+
+        cache.invalidate("B"); // an update to an unrelated booking
+
+        assertThat(cache.put("A", booking("A"), generation)).isTrue();
+        assertThat(cache.get("A")).isNotNull();
+    }
+
+    private BookingResponseDTO booking(String token) {
+        BookingResponseDTO dto = new BookingResponseDTO();
+        dto.setToken(token);
+        return dto;
+    }
+}
@@ -5,13 +5,30 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 
 import tqs.data.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import tqs.dto.BookingPageDTO;
 import tqs.dto.BookingRequestDTO;
 import tqs.dto.BookingResponseDTO;
+import tqs.dto.BookingStatusEvent;
+import tqs.dto.BulkStatusResultDTO;
+import tqs.dto.SlotAvailabilityDTO;
+import tqs.dto.SlotOccupancyDTO;
 import tqs.exceptions.InvalidBookingException;
+import tqs.services.BookingArchiveService;
+import tqs.services.BookingCache;
 import tqs.services.BookingServiceImpl;
 import tqs.services.MunicipalityService;
+import tqs.services.SlotCapacityLedger;
+import tqs.services.TokenGenerator;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -27,9 +44,33 @@ class BookingServiceImplTest {
     @Mock
     private BookingRequestRepo bookingRepo;
 
+    @Mock
+    private BookingJdbcRepo jdbcRepo;
+
     @Mock
     private MunicipalityService municipalityService;
 
+    @Mock
+    private SlotCapacityLedger ledger;
+
+    @Mock
+    private SlotOccupancyRepo occupancy;
+
+    @Mock
+    private BookingCache cache;
+
+    @Mock
+    private ApplicationEventPublisher events;
+
+    @Mock
+    private BookingArchiveService archive;
+
+    @Spy
+    private TokenGenerator tokenGenerator = new TokenGenerator();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private BookingServiceImpl bookingService;
 
@@ -50,21 +91,21 @@ class BookingServiceImplTest {
     @Test
     void shouldCreateBookingWhenAllConditionsMet() {
         when(municipalityService.isValid("LISBOA")).thenReturn(true);
-        when(bookingRepo.countByMunicipalityAndCollectionDateAndTimeSlot(eq("LISBOA"), any(), any())).thenReturn(0L);
-        when(bookingRepo.save(any())).thenAnswer(invocation -> {
-            BookingRequest b = invocation.getArgument(0);
-            b.setId(1L);
-            b.setToken("TOKEN1234567890ABCDE");
-            b.setCreatedAt(LocalDateTime.now());
-            return b;
-        });
+        when(ledger.covers(any())).thenReturn(true);
+        when(ledger.tryReserve(eq("LISBOA"), any(), any(), eq(15))).thenReturn(true);
+        when(occupancy.tryAdd(eq("LISBOA"), any(), any(), eq(1), eq(15))).thenReturn(true);
 
         BookingResponseDTO result = bookingService.createBooking(validDTO);
 
         assertThat(result.getToken()).isNotNull().hasSize(20);
         assertThat(result.getStatus()).isEqualTo(Status.RECEIVED);
         assertThat(result.getMunicipality()).isEqualTo("LISBOA");
-        verify(bookingRepo).save(any(BookingRequest.class));
+        verify(jdbcRepo).insertBooking(any(BookingRequest.class));
+        verify(bookingRepo, never()).countByMunicipalityAndCollectionDateAndTimeSlotAndStatusNot(any(), any(), any(),
+                any());
+        for (String stage : List.of("validation", "capacity", "insert")) {
+            assertThat(meterRegistry.get("booking.create").tag("stage", stage).timer().count()).isEqualTo(1);
+        }
     }
 
     @Test
@@ -74,19 +115,50 @@ class BookingServiceImplTest {
         assertThatThrownBy(() -> bookingService.createBooking(validDTO))
                 .isInstanceOf(InvalidBookingException.class)
                 .hasMessage("Invalid municipality code: LISBOA");
-        verify(bookingRepo, never()).save(any());
+        verify(jdbcRepo, never()).insertBooking(any());
     }
 
     @Test
     void shouldRejectBookingWhenNoCapacity() {
         when(municipalityService.isValid("LISBOA")).thenReturn(true);
-        when(bookingRepo.countByMunicipalityAndCollectionDateAndTimeSlot(eq("LISBOA"), any(), any()))
-                .thenReturn(15L);
+        when(ledger.covers(any())).thenReturn(true);
+        when(ledger.tryReserve(eq("LISBOA"), any(), any(), eq(15))).thenReturn(false);
 
         assertThatThrownBy(() -> bookingService.createBooking(validDTO))
                 .isInstanceOf(InvalidBookingException.class)
                 .hasMessage("No capacity available for selected date and time slot for LISBOA");
-        verify(bookingRepo, never()).save(any());
+        verify(jdbcRepo, never()).insertBooking(any());
+        assertThat(meterRegistry.get("booking.create.rejected").tag("reason", "full").counter().count())
+                .isEqualTo(1.0);
+        assertThat(meterRegistry.get("booking.create").tag("stage", "insert").timer().count()).isZero();
+    }
+
+    @Test
+    void shouldRejectBookingWhenOccupancyIsFull() {
+        // another instance filled the slot -- this instance's ledger did not know
+        when(municipalityService.isValid("LISBOA")).thenReturn(true);
+        when(ledger.covers(any())).thenReturn(true);
+        when(ledger.tryReserve(eq("LISBOA"), any(), any(), eq(15))).thenReturn(true);
+        when(occupancy.tryAdd(eq("LISBOA"), any(), any(), eq(1), eq(15))).thenReturn(false);
+
+        assertThatThrownBy(() -> bookingService.createBooking(validDTO))
+                .isInstanceOf(InvalidBookingException.class)
+                .hasMessage("No capacity available for selected date and time slot for LISBOA");
+        verify(jdbcRepo, never()).insertBooking(any());
+        verify(ledger).release("LISBOA", validDTO.getCollectionDate(), Slot.MORNING);
+    }
+
+    @Test
+    void shouldReleaseReservedPlaceWhenSaveFails() {
+        when(municipalityService.isValid("LISBOA")).thenReturn(true);
+        when(ledger.covers(any())).thenReturn(true);
+        when(ledger.tryReserve(eq("LISBOA"), any(), any(), eq(15))).thenReturn(true);
+        when(occupancy.tryAdd(eq("LISBOA"), any(), any(), eq(1), eq(15))).thenReturn(true);
+        doThrow(new IllegalStateException("insert failed")).when(jdbcRepo).insertBooking(any());
+
+        assertThatThrownBy(() -> bookingService.createBooking(validDTO))
+                .isInstanceOf(IllegalStateException.class);
+        verify(ledger).release("LISBOA", validDTO.getCollectionDate(), Slot.MORNING);
     }
 
     // cancel bookings
@@ -101,6 +173,11 @@ class BookingServiceImplTest {
 
         assertThat(booking.getStatus()).isEqualTo(Status.CANCELLED);
         verify(bookingRepo).save(booking);
+        verify(occupancy).remove(booking.getMunicipality(), booking.getCollectionDate(), booking.getTimeSlot());
+        verify(ledger).releaseAfterCommit(booking.getMunicipality(), booking.getCollectionDate(),
+                booking.getTimeSlot());
+        verify(cache).invalidate("TOKEN1234567890ABCDE");
+        verify(events).publishEvent(any(BookingStatusEvent.class));
     }
 
     @Test
@@ -138,6 +215,9 @@ class BookingServiceImplTest {
         assertThat(result.getStatus()).isEqualTo(Status.ASSIGNED);
         assertThat(result.getHistory()).hasSize(1);
         verify(bookingRepo).save(booking);
+        verify(cache).invalidate("TOKEN1234567890ABCDE");
+        verify(events).publishEvent(new BookingStatusEvent("TOKEN1234567890ABCDE", null, Status.ASSIGNED,
+                booking.getUpdatedAt()));
     }
 
     @Test
@@ -172,6 +252,114 @@ class BookingServiceImplTest {
         assertThat(result.get(0).getStatus()).isEqualTo(Status.RECEIVED);
     }
 
+    @Test
+    void shouldReturnCursorWhenPageIsFull() {
+        Pageable pageable = PageRequest.of(0, 1, Sort.by("id"));
+        when(bookingRepo.findByStatus(Status.RECEIVED, pageable))
+                .thenReturn(List.of(createMockBooking("PORTO", LocalDate.now())));
+
+        BookingPageDTO page = bookingService.getBookingsByStatus(Status.RECEIVED, 0, 1, null);
+
+        assertThat(page.getItems()).hasSize(1);
+        assertThat(page.getNextCursor()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldUseKeysetQueryWhenCursorGiven() {
+        LocalDate start = LocalDate.now();
+        LocalDate end = start.plusDays(7);
+        Pageable pageable = PageRequest.of(0, 50, Sort.by("id"));
+        when(bookingRepo.findByCollectionDateBetweenAndIdGreaterThan(start, end, 10L, pageable))
+                .thenReturn(List.of(createMockBooking("LISBOA", start)));
+
+        // page is ignored once a cursor is given
+        BookingPageDTO page = bookingService.getBookingsByDateRange(start, end, 3, 50, 10L);
+
+        assertThat(page.getItems()).hasSize(1);
+        assertThat(page.getNextCursor()).isNull();
+        verify(bookingRepo, never()).findByCollectionDateBetween(any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    void shouldClampPageSize() {
+        Pageable pageable = PageRequest.of(0, BookingServiceImpl.MAX_PAGE_SIZE, Sort.by("id"));
+        when(bookingRepo.findByMunicipalityAndCollectionDate("LISBOA", LocalDate.now(), pageable))
+                .thenReturn(List.of());
+
+        BookingPageDTO page = bookingService.getBookingsByMunicipalityByDate("LISBOA", LocalDate.now(), 0, 5000,
+                null);
+
+        assertThat(page.getItems()).isEmpty();
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void shouldRejectInvalidPageParameters() {
+        assertThatThrownBy(() -> bookingService.getBookingsByStatus(Status.RECEIVED, -1, 10, null))
+                .isInstanceOf(InvalidBookingException.class);
+        assertThatThrownBy(() -> bookingService.getBookingsByStatus(Status.RECEIVED, 0, 0, null))
+                .isInstanceOf(InvalidBookingException.class);
+    }
+
+    @Test
+    void shouldReportOutcomePerTokenInBulkUpdate() {
+        BookingRequest received = createMockBooking("LISBOA", LocalDate.now());
+        received.setToken("AAAAAAAAAAAAAAAAAAAA");
+        BookingRequest completed = createMockBooking("PORTO", LocalDate.now());
+        completed.setId(2L);
+        completed.setToken("BBBBBBBBBBBBBBBBBBBB");
+        completed.setStatus(Status.COMPLETED);
+        when(bookingRepo.findByTokenIn(anyCollection())).thenReturn(List.of(received, completed));
+        when(jdbcRepo.updateStatuses(anyList())).thenReturn(new int[] { 1 });
+
+        List<BulkStatusResultDTO> results = bookingService.updateBookingStatuses(List.of("bad token",
+                "AAAAAAAAAAAAAAAAAAAA", "BBBBBBBBBBBBBBBBBBBB", "CCCCCCCCCCCCCCCCCCCC", "AAAAAAAAAAAAAAAAAAAA"),
+                Status.ASSIGNED);
+
+        assertThat(results).extracting(BulkStatusResultDTO::getOutcome).containsExactly(
+                BulkStatusResultDTO.Outcome.NOT_FOUND,
+                BulkStatusResultDTO.Outcome.UPDATED,
+                BulkStatusResultDTO.Outcome.INVALID_TRANSITION,
+                BulkStatusResultDTO.Outcome.NOT_FOUND);
+        assertThat(results.get(0).getToken()).isEqualTo("[INVALID_TOKEN_FORMAT]");
+        verify(jdbcRepo).insertHistory(argThat(changes -> changes.size() == 1 && changes.get(0).bookingId() == 1L));
+        verify(cache).invalidate("AAAAAAAAAAAAAAAAAAAA");
+        verify(events).publishEvent(any(BookingStatusEvent.class));
+    }
+
+    @Test
+    void shouldUpdateBulkRowsInIdOrder() {
+        BookingRequest later = createMockBooking("LISBOA", LocalDate.now());
+        later.setId(7L);
+        later.setToken("AAAAAAAAAAAAAAAAAAAA");
+        BookingRequest earlier = createMockBooking("PORTO", LocalDate.now());
+        earlier.setId(3L);
+        earlier.setToken("BBBBBBBBBBBBBBBBBBBB");
+        when(bookingRepo.findByTokenIn(anyCollection())).thenReturn(List.of(later, earlier));
+        when(jdbcRepo.updateStatuses(anyList())).thenReturn(new int[] { 1, 1 });
+
+        bookingService.updateBookingStatuses(List.of("AAAAAAAAAAAAAAAAAAAA", "BBBBBBBBBBBBBBBBBBBB"),
+                Status.ASSIGNED);
+
+        verify(jdbcRepo).updateStatuses(argThat(changes -> changes.get(0).bookingId() == 3L
+                && changes.get(1).bookingId() == 7L));
+    }
+
+    @Test
+    void shouldReportConflictWhenRowChangedConcurrently() {
+        BookingRequest received = createMockBooking("LISBOA", LocalDate.now());
+        received.setToken("AAAAAAAAAAAAAAAAAAAA");
+        when(bookingRepo.findByTokenIn(anyCollection())).thenReturn(List.of(received));
+        when(jdbcRepo.updateStatuses(anyList())).thenReturn(new int[] { 0 });
+
+        List<BulkStatusResultDTO> results = bookingService.updateBookingStatuses(List.of("AAAAAAAAAAAAAAAAAAAA"),
+                Status.CANCELLED);
+
+        assertThat(results.get(0).getOutcome()).isEqualTo(BulkStatusResultDTO.Outcome.CONFLICT);
+        verify(jdbcRepo, never()).insertHistory(anyList());
+        verify(ledger, never()).releaseAfterCommit(any(), any(), any());
+    }
+
     // validation and utils
     @Test
     void shouldRejectBookingInPast() {
@@ -187,6 +375,17 @@ class BookingServiceImplTest {
                 .hasMessage("Can only book 2 weeks ahead");
     }
 
+    @Test
+    void shouldFallBackToRepoCountOutsideLedgerWindow() {
+        LocalDate date = LocalDate.now().plusDays(30);
+        when(ledger.covers(date)).thenReturn(false);
+        when(bookingRepo.countByMunicipalityAndCollectionDateAndTimeSlotAndStatusNot("LISBOA", date, Slot.MORNING,
+                Status.CANCELLED)).thenReturn(3L);
+
+        assertThat(bookingService.hasCapacity("LISBOA", date, Slot.MORNING)).isTrue();
+        verify(ledger, never()).count(any(), any(), any());
+    }
+
     @Test
     void shouldGenerateUniqueToken() {
         String token1 = bookingService.generateToken();
@@ -195,6 +394,96 @@ class BookingServiceImplTest {
         assertThat(token1).matches("^[A-Z0-9]{20}$");
     }
 
+    @Test
+    void shouldRetryTokenOnCollision() {
+        when(municipalityService.isValid("LISBOA")).thenReturn(true);
+        when(ledger.covers(any())).thenReturn(true);
+        when(ledger.tryReserve(eq("LISBOA"), any(), eq(Slot.MORNING), anyInt())).thenReturn(true);
+        when(occupancy.tryAdd(eq("LISBOA"), any(), any(), eq(1), eq(15))).thenReturn(true);
+        doReturn("AAAAAAAAAAAAAAAAAAAA", "BBBBBBBBBBBBBBBBBBBB").when(tokenGenerator).next();
+        doThrow(new DuplicateKeyException("token taken")).doNothing().when(jdbcRepo).insertBooking(any());
+
+        BookingResponseDTO result = bookingService.createBooking(validDTO);
+
+        assertThat(result.getToken()).isEqualTo("BBBBBBBBBBBBBBBBBBBB");
+        verify(jdbcRepo, times(2)).insertBooking(any(BookingRequest.class));
+    }
+
+    @Test
+    void shouldReleaseCapacityWhenNoUniqueTokenFound() {
+        when(municipalityService.isValid("LISBOA")).thenReturn(true);
+        when(ledger.covers(any())).thenReturn(true);
+        when(ledger.tryReserve(eq("LISBOA"), any(), eq(Slot.MORNING), anyInt())).thenReturn(true);
+        when(occupancy.tryAdd(eq("LISBOA"), any(), any(), eq(1), eq(15))).thenReturn(true);
+        doThrow(new DuplicateKeyException("token taken")).when(jdbcRepo).insertBooking(any());
+
+        assertThatThrownBy(() -> bookingService.createBooking(validDTO))
+                .isInstanceOf(DuplicateKeyException.class);
+        verify(jdbcRepo, times(2)).insertBooking(any());
+        verify(ledger).release(eq("LISBOA"), any(), eq(Slot.MORNING));
+    }
+
+    @Test
+    void shouldMapOccupancyRows() {
+        LocalDate day = LocalDate.now().plusDays(1);
+        when(occupancy.findBetween(day, day.plusDays(2))).thenReturn(
+                List.of(new SlotOccupancyRepo.Row("LISBOA", day, Slot.EVENING, 4)));
+
+        List<SlotOccupancyDTO> result = bookingService.getOccupancy(day, day.plusDays(2));
+
+        assertThat(result).containsExactly(new SlotOccupancyDTO("LISBOA", day, Slot.EVENING, 4, 15));
+    }
+
+    @Test
+    void shouldRejectOccupancyRangeEndingBeforeStart() {
+        LocalDate day = LocalDate.now();
+
+        assertThatThrownBy(() -> bookingService.getOccupancy(day, day.minusDays(1)))
+                .isInstanceOf(InvalidBookingException.class);
+        verifyNoInteractions(occupancy);
+    }
+
+    @Test
+    void shouldServeAvailabilityFromLedgerOnly() {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        when(municipalityService.isValid("LISBOA")).thenReturn(true);
+        when(ledger.count(eq("LISBOA"), any(), any())).thenReturn(0);
+        when(ledger.count("LISBOA", tomorrow, Slot.MORNING)).thenReturn(15);
+        when(ledger.count("LISBOA", tomorrow, Slot.EVENING)).thenReturn(4);
+
+        SlotAvailabilityDTO result = bookingService.getAvailability("LISBOA");
+
+        assertThat(result.capacity()).isEqualTo(15);
+        assertThat(result.days()).hasSize(SlotCapacityLedger.WINDOW_DAYS + 1);
+        assertThat(result.days().get(0).date()).isEqualTo(LocalDate.now());
+        assertThat(result.days().get(1).remaining())
+                .containsExactly(entry(Slot.MORNING, 0), entry(Slot.AFTERNOON, 15), entry(Slot.EVENING, 11));
+        verifyNoInteractions(bookingRepo, occupancy);
+    }
+
+    @Test
+    void shouldLookUpAvailabilityUnderTheStoredCode() {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        when(municipalityService.isValid("lisboa")).thenReturn(true);
+        when(ledger.count(eq("LISBOA"), any(), any())).thenReturn(0);
+        when(ledger.count("LISBOA", tomorrow, Slot.MORNING)).thenReturn(15);
+
+        SlotAvailabilityDTO result = bookingService.getAvailability("lisboa");
+
+        assertThat(result.municipality()).isEqualTo("LISBOA");
+        assertThat(result.days().get(1).remaining()).containsEntry(Slot.MORNING, 0);
+    }
+
+    @Test
+    void shouldRejectAvailabilityForUnknownMunicipality() {
+        when(municipalityService.isValid("NOWHERE")).thenReturn(false);
+
+        assertThatThrownBy(() -> bookingService.getAvailability("NOWHERE"))
+                .isInstanceOf(InvalidBookingException.class)
+                .hasMessageContaining("Invalid municipality code");
+        verifyNoInteractions(ledger);
+    }
+
     @Test
     void shouldGetBookingsByDateRange() {
         LocalDate start = LocalDate.now();
@@ -224,6 +513,32 @@ class BookingServiceImplTest {
         assertThat(result.getMunicipality()).isEqualTo("LISBOA");
         assertThat(result.getToken()).isEqualTo("TOKEN");
         verify(bookingRepo).findByToken("TOKEN123");
+        verify(cache).put("TOKEN123", result, 0L);
+    }
+
+    @Test
+    void shouldServeCachedBookingWithoutRepo() {
+        BookingResponseDTO cached = new BookingResponseDTO();
+        cached.setToken("TOKEN123");
+        when(cache.get("TOKEN123")).thenReturn(cached);
+
+        assertThat(bookingService.getBookingByToken("TOKEN123")).isSameAs(cached);
+        verify(bookingRepo, never()).findByToken(any());
+        assertThat(meterRegistry.get("booking.lookup").tag("source", "cache").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("booking.lookup").tag("source", "db").timer().count()).isZero();
+    }
+
+    @Test
+    void shouldFallBackToArchiveWhenBookingNotLive() {
+        BookingRequest archived = createMockBooking("LISBOA", LocalDate.now().minusDays(40));
+        archived.setStatus(Status.COMPLETED);
+        when(bookingRepo.findByToken("TOKEN123")).thenReturn(Optional.empty());
+        when(archive.findByToken("TOKEN123")).thenReturn(Optional.of(archived));
+
+        BookingResponseDTO result = bookingService.getBookingByToken("TOKEN123");
+
+        assertThat(result.getStatus()).isEqualTo(Status.COMPLETED);
+        verify(cache).put("TOKEN123", result, 0L);
     }
 
     @Test
@@ -261,6 +576,9 @@ class BookingServiceImplTest {
         assertThat(result.getStatus()).isEqualTo(Status.ASSIGNED);
         assertThat(result.getHistory()).hasSize(1);
         verify(bookingRepo).save(booking);
+        verify(cache).invalidate("TOKEN123");
+        verify(events).publishEvent(new BookingStatusEvent("TOKEN123", null, Status.ASSIGNED,
+                booking.getUpdatedAt()));
     }
 
     // helper function
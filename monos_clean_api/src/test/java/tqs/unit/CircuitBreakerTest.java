@@ -0,0 +1,86 @@
+package tqs.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import tqs.services.CircuitBreaker;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(0);
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new CircuitBreaker(3, Duration.ofSeconds(10), now::get);
+    }
+
+    @Test
+    void whenFailuresBelowThreshold_thenStaysClosed() {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void whenThresholdReached_thenOpensAndRejects() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void whenOpenDurationPassed_thenOnlyOneTrialCallIsAllowed() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+        now.set(10_000);
+
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void whenTrialSucceeds_thenCloses() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+        now.set(10_000);
+        breaker.tryAcquirePermission();
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void whenTrialFails_thenOpensAgain() {
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure();
+        }
+        now.set(10_000);
+        breaker.tryAcquirePermission();
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        now.set(15_000);
+        assertFalse(breaker.tryAcquirePermission());
+        now.set(20_000);
+        assertTrue(breaker.tryAcquirePermission());
+    }
+}
@@ -3,41 +3,59 @@ package tqs.unit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tqs.config.MunicipalityApiProperties;
+import tqs.services.CircuitBreaker;
 import tqs.services.ExternalMunicipalityClient;
 
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class ExternalMunicipalityClientUnitTest {
 
     @Mock
-    private RestTemplate restTemplate;
+    private HttpClient httpClient;
 
     @Mock
-    private RestTemplateBuilder restTemplateBuilder;
+    private HttpResponse<byte[]> response;
 
     private ExternalMunicipalityClient client;
 
     @BeforeEach
     void setUp() {
-        when(restTemplateBuilder.build()).thenReturn(restTemplate);
-        client = new ExternalMunicipalityClient(restTemplateBuilder);
+        client = new ExternalMunicipalityClient(httpClient, new ObjectMapper(), new MunicipalityApiProperties(
+                "https://json.geoapi.pt/municipio", Duration.ofSeconds(2), Duration.ofSeconds(5),
+                2, Duration.ofMinutes(1), 2, Duration.ofMillis(100)));
+    }
+
+    private void respond(int status, String body, Map<String, List<String>> headers) throws Exception {
+        when(response.statusCode()).thenReturn(status);
+        lenient().when(response.body()).thenReturn(body == null ? null : body.getBytes(StandardCharsets.UTF_8));
+        lenient().when(response.headers()).thenReturn(HttpHeaders.of(headers, (k, v) -> true));
+        doReturn(CompletableFuture.completedFuture(response)).when(httpClient).sendAsync(any(), any());
     }
 
     @Test
-    void whenFetchMunicipalities_thenReturnsList() {
-        String[] mockResponse = { "LISBOA", "PORTO", "BRAGA" };
-        when(restTemplate.getForObject(any(String.class), eq(String[].class)))
-                .thenReturn(mockResponse);
+    void whenFetchMunicipalities_thenReturnsList() throws Exception {
+        respond(200, "[\"LISBOA\",\"PORTO\",\"BRAGA\"]", Map.of());
 
         var result = client.fetchMunicipalityNamesRaw();
 
@@ -47,9 +65,8 @@ class ExternalMunicipalityClientUnitTest {
     }
 
     @Test
-    void whenApiReturnsNull_thenReturnEmptyList() {
-        when(restTemplate.getForObject(any(String.class), eq(String[].class)))
-                .thenReturn(null);
+    void whenApiReturnsNull_thenReturnEmptyList() throws Exception {
+        respond(200, "null", Map.of());
 
         var result = client.fetchMunicipalityNamesRaw();
 
@@ -58,10 +75,73 @@ class ExternalMunicipalityClientUnitTest {
     }
 
     @Test
-    void whenApiFails_thenThrowsRuntimeException() {
-        when(restTemplate.getForObject(any(String.class), eq(String[].class)))
-                .thenThrow(new RestClientException("API Error"));
+    void whenApiFails_thenThrowsRuntimeException() throws Exception {
+        doReturn(CompletableFuture.failedFuture(new IOException("API Error"))).when(httpClient).sendAsync(any(), any());
+
+        assertThrows(RuntimeException.class, () -> client.fetchMunicipalityNamesRaw());
+    }
+
+    @Test
+    void whenApiAnswersErrorStatus_thenThrowsRuntimeException() throws Exception {
+        respond(500, "oops", Map.of());
+
+        assertThrows(RuntimeException.class, () -> client.fetchMunicipalityNamesRaw());
+        assertEquals(1, client.getFailedCalls());
+    }
+
+    @Test
+    void whenReadTimeoutConfigured_thenSetOnRequest() throws Exception {
+        respond(200, "[]", Map.of());
+
+        client.fetchMunicipalityNamesRaw();
+
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient).sendAsync(request.capture(), any());
+        assertEquals(Duration.ofSeconds(5), request.getValue().timeout().orElseThrow());
+        assertTrue(request.getValue().headers().firstValue("If-None-Match").isEmpty());
+    }
+
+    @Test
+    void whenListUnchanged_thenConditionalRequestReusesPreviousList() throws Exception {
+        respond(200, "[\"LISBOA\",\"PORTO\"]", Map.of(
+                "ETag", List.of("\"v1\""),
+                "Last-Modified", List.of("Wed, 21 Oct 2026 07:28:00 GMT")));
+        List<String> first = client.fetchMunicipalityNamesRaw();
+
+        when(response.statusCode()).thenReturn(304);
+        List<String> second = client.fetchMunicipalityNamesRaw();
+
+        assertSame(first, second);
+        assertEquals(1, client.getNotModifiedResponses());
+        ArgumentCaptor<HttpRequest> request = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(2)).sendAsync(request.capture(), any());
+        HttpRequest conditional = request.getAllValues().get(1);
+        assertEquals("\"v1\"", conditional.headers().firstValue("If-None-Match").orElseThrow());
+        assertEquals("Wed, 21 Oct 2026 07:28:00 GMT",
+                conditional.headers().firstValue("If-Modified-Since").orElseThrow());
+    }
+
+    @Test
+    void whenFailuresReachThreshold_thenCircuitOpensAndCallsFailFast() throws Exception {
+        doReturn(CompletableFuture.failedFuture(new IOException("API Error"))).when(httpClient).sendAsync(any(), any());
 
         assertThrows(RuntimeException.class, () -> client.fetchMunicipalityNamesRaw());
+        assertThrows(RuntimeException.class, () -> client.fetchMunicipalityNamesRaw());
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
+
+        assertThrows(RuntimeException.class, () -> client.fetchMunicipalityNamesRaw());
+        verify(httpClient, times(2)).sendAsync(any(), any());
+        assertEquals(1, client.getRejectedCalls());
+        assertEquals(2, client.getFailedCalls());
+    }
+
+    @Test
+    void whenFetchThrowsUnchecked_thenItStillCountsAsFailure() throws Exception {
+        doThrow(new IllegalStateException("client closed")).when(httpClient).sendAsync(any(), any());
+
+        assertThrows(IllegalStateException.class, () -> client.fetchMunicipalityNamesRaw());
+        assertThrows(IllegalStateException.class, () -> client.fetchMunicipalityNamesRaw());
+
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
     }
-}
\ No newline at end of file
+}
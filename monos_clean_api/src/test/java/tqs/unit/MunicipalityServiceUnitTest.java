@@ -9,9 +9,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import tqs.dto.MunicipalityDTO;
 import tqs.services.ExternalMunicipalityClient;
 import tqs.services.MunicipalityService;
+import tqs.services.MunicipalitySnapshotStore;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -22,6 +28,9 @@ class MunicipalityServiceUnitTest {
     @Mock
     private ExternalMunicipalityClient client;
 
+    @Mock
+    private MunicipalitySnapshotStore snapshotStore;
+
     private MunicipalityService service;
     private final List<String> sampleMunicipalities = Arrays.asList("LISBOA", "PORTO", "BRAGA");
 
@@ -52,6 +61,20 @@ class MunicipalityServiceUnitTest {
         verify(client, times(1)).fetchMunicipalityNamesRaw();
     }
 
+    @Test
+    void whenListIsCached_thenOnlyFirstLookupIsAMiss() {
+        when(client.fetchMunicipalityNamesRaw()).thenReturn(sampleMunicipalities);
+
+        service.isValid("LISBOA");
+        service.isValid("PORTO");
+        service.getAllMunicipalities();
+
+        assertEquals(1, service.getCacheMisses());
+        assertEquals(2, service.getCacheHits());
+        assertEquals(1, service.getRefreshes());
+        assertEquals(0, service.getFailedRefreshes());
+    }
+
     @Test
     void whenGetAllMunicipalities_thenReturnList() {
         when(client.fetchMunicipalityNamesRaw()).thenReturn(sampleMunicipalities);
@@ -85,4 +108,121 @@ class MunicipalityServiceUnitTest {
         assertTrue(service.isValid("lisboa"));
         verify(client, times(1)).fetchMunicipalityNamesRaw();
     }
+
+    @Test
+    void whenIsValid_withMixedCaseName_thenReturnTrue() {
+        when(client.fetchMunicipalityNamesRaw()).thenReturn(Arrays.asList("Lisboa", "Vila Nova de Gaia", "Évora"));
+
+        assertTrue(service.isValid("VILA NOVA DE GAIA"));
+        assertTrue(service.isValid("Vila Nova de Gaia"));
+        assertTrue(service.isValid("évora"));
+        assertFalse(service.isValid("GAIA"));
+        verify(client, times(1)).fetchMunicipalityNamesRaw();
+    }
+
+    @Test
+    void whenCacheExpired_thenServeStaleListAndRefreshOnce() throws Exception {
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        service = new MunicipalityService(client, executor, snapshotStore);
+
+        when(client.fetchMunicipalityNamesRaw())
+                .thenReturn(sampleMunicipalities)
+                .thenAnswer(invocation -> {
+                    refreshStarted.countDown();
+                    releaseRefresh.await(5, TimeUnit.SECONDS);
+                    return Arrays.asList("LISBOA", "PORTO", "BRAGA", "FARO");
+                });
+
+        service.getAllMunicipalities();
+        expireCache();
+
+        // every caller gets the old list straight away while one refresh is in flight
+        for (int i = 0; i < 10; i++) {
+            assertEquals(3, service.getAllMunicipalities().size());
+        }
+        assertTrue(refreshStarted.await(5, TimeUnit.SECONDS));
+        assertFalse(service.isValid("FARO"));
+
+        releaseRefresh.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertTrue(service.isValid("FARO"));
+        verify(client, times(2)).fetchMunicipalityNamesRaw();
+    }
+
+    @Test
+    void whenBackgroundRefreshFails_thenKeepLastGoodList() {
+        service = new MunicipalityService(client, Runnable::run, snapshotStore);
+        when(client.fetchMunicipalityNamesRaw())
+                .thenReturn(sampleMunicipalities)
+                .thenThrow(new RuntimeException("Unable to fetch municipality list"));
+
+        service.getAllMunicipalities();
+        expireCache();
+
+        assertTrue(service.isValid("LISBOA"));
+        assertEquals(3, service.getAllMunicipalities().size());
+        // failure pushes the next attempt back instead of retrying on every call
+        verify(client, times(2)).fetchMunicipalityNamesRaw();
+    }
+
+    @Test
+    void whenCacheIsEmptyAndFetchFails_thenThrow() {
+        when(client.fetchMunicipalityNamesRaw()).thenThrow(new RuntimeException("Unable to fetch municipality list"));
+
+        assertThrows(RuntimeException.class, () -> service.isValid("LISBOA"));
+    }
+
+    @Test
+    void whenSnapshotExists_thenServeItWithoutBlockingOnFetch() {
+        service = new MunicipalityService(client, Runnable::run, snapshotStore);
+        when(snapshotStore.load()).thenReturn(Optional.of(
+                new MunicipalitySnapshotStore.Stored(System.currentTimeMillis(), List.of("LISBOA", "FARO"))));
+        when(client.fetchMunicipalityNamesRaw()).thenThrow(new RuntimeException("Unable to fetch municipality list"));
+
+        service.restoreSnapshot();
+
+        // reconcile was attempted at startup and failed, the snapshot keeps serving
+        assertTrue(service.isValid("FARO"));
+        assertEquals(2, service.getAllMunicipalities().size());
+        verify(client, times(1)).fetchMunicipalityNamesRaw();
+    }
+
+    @Test
+    void whenFetchSucceeds_thenSnapshotIsSaved() {
+        service = new MunicipalityService(client, Runnable::run, snapshotStore);
+        when(client.fetchMunicipalityNamesRaw()).thenReturn(sampleMunicipalities);
+
+        service.getAllMunicipalities();
+
+        verify(snapshotStore).save(sampleMunicipalities);
+    }
+
+    @Test
+    void whenSameListLoaded_thenListingVersionIsStable() {
+        when(client.fetchMunicipalityNamesRaw()).thenReturn(sampleMunicipalities,
+                Arrays.asList("LISBOA", "PORTO", "BRAGA"),
+                Arrays.asList("LISBOA", "PORTO", "FARO"));
+
+        MunicipalityService.Listing first = service.getListing();
+        MunicipalityService.Listing sameContent = new MunicipalityService(client).getListing();
+        MunicipalityService.Listing otherContent = new MunicipalityService(client).getListing();
+
+        assertEquals(3, first.municipalities().size());
+        assertEquals(first.version(), sameContent.version());
+        assertNotEquals(first.version(), otherContent.version());
+    }
+
+    private void expireCache() {
+        try {
+            java.lang.reflect.Field cacheExpiryField = MunicipalityService.class.getDeclaredField("cacheExpiry");
+            cacheExpiryField.setAccessible(true);
+            cacheExpiryField.set(service, System.currentTimeMillis() - 1);
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            fail("Could not manipulate cache expiry");
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package tqs.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import tqs.services.MunicipalitySnapshotStore;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MunicipalitySnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void whenSaved_thenLoadReturnsSameNames() {
+        Path file = dir.resolve("nested/municipalities.json");
+        MunicipalitySnapshotStore store = new MunicipalitySnapshotStore(file.toString(), new ObjectMapper());
+
+        store.save(List.of("Lisboa", "Porto", "Évora"));
+        Optional<MunicipalitySnapshotStore.Stored> loaded = store.load();
+
+        assertTrue(loaded.isPresent());
+        assertEquals(List.of("Lisboa", "Porto", "Évora"), loaded.get().names());
+        assertTrue(loaded.get().savedAt() > 0);
+    }
+
+    @Test
+    void whenNoSnapshotFile_thenLoadIsEmpty() {
+        MunicipalitySnapshotStore store = new MunicipalitySnapshotStore(dir.resolve("missing.json").toString(),
+                new ObjectMapper());
+
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    void whenSnapshotIsCorrupt_thenLoadIsEmpty() throws Exception {
+        Path file = dir.resolve("municipalities.json");
+        Files.writeString(file, "{not json");
+        MunicipalitySnapshotStore store = new MunicipalitySnapshotStore(file.toString(), new ObjectMapper());
+
+        assertTrue(store.load().isEmpty());
+    }
+
+    @Test
+    void whenDisabled_thenNothingIsWritten() {
+        MunicipalitySnapshotStore store = MunicipalitySnapshotStore.disabled();
+
+        store.save(List.of("Lisboa"));
+
+        assertTrue(store.load().isEmpty());
+    }
+}
@@ -0,0 +1,165 @@
+package tqs.unit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import tqs.data.BookingRequestRepo;
+import tqs.data.Slot;
+import tqs.data.SlotCount;
+import tqs.data.Status;
+import tqs.services.SlotCapacityLedger;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SlotCapacityLedgerTest {
+
+    @Mock
+    private BookingRequestRepo repo;
+
+    private SlotCapacityLedger ledger;
+    private final LocalDate tomorrow = LocalDate.now().plusDays(1);
+
+    @BeforeEach
+    void setUp() {
+        ledger = new SlotCapacityLedger(repo);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void whenSeeded_thenCountsComeFromRepo() {
+        SlotCount row = mock(SlotCount.class);
+        when(row.getMunicipality()).thenReturn("LISBOA");
+        when(row.getCollectionDate()).thenReturn(tomorrow);
+        when(row.getTimeSlot()).thenReturn(Slot.MORNING);
+        when(row.getBooked()).thenReturn(7L);
+        when(repo.countBySlotBetween(any(), any(), eq(Status.CANCELLED))).thenReturn(List.of(row));
+
+        ledger.seed();
+
+        assertEquals(7, ledger.count("LISBOA", tomorrow, Slot.MORNING));
+        assertEquals(0, ledger.count("LISBOA", tomorrow, Slot.AFTERNOON));
+        assertEquals(0, ledger.count("PORTO", tomorrow, Slot.MORNING));
+    }
+
+    @Test
+    void whenReserveAndRelease_thenCounterFollows() {
+        assertTrue(ledger.tryReserve("LISBOA", tomorrow, Slot.MORNING, 15));
+        assertTrue(ledger.tryReserve("LISBOA", tomorrow, Slot.MORNING, 15));
+        ledger.release("LISBOA", tomorrow, Slot.MORNING);
+
+        assertEquals(1, ledger.count("LISBOA", tomorrow, Slot.MORNING));
+    }
+
+    @Test
+    void whenSlotIsFull_thenReserveFails() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(ledger.tryReserve("LISBOA", tomorrow, Slot.MORNING, 3));
+        }
+
+        assertFalse(ledger.tryReserve("LISBOA", tomorrow, Slot.MORNING, 3));
+        assertEquals(3, ledger.count("LISBOA", tomorrow, Slot.MORNING));
+        assertTrue(ledger.tryReserve("LISBOA", tomorrow, Slot.AFTERNOON, 3));
+    }
+
+    @Test
+    void whenReleasingEmptySlot_thenCounterStaysAtZero() {
+        assertTrue(ledger.tryReserve("LISBOA", tomorrow, Slot.MORNING, 15));
+        ledger.release("LISBOA", tomorrow, Slot.MORNING);
+        ledger.release("LISBOA", tomorrow, Slot.MORNING);
+
+        assertEquals(0, ledger.count("LISBOA", tomorrow, Slot.MORNING));
+    }
+
+    @Test
+    void whenCountingOccupancy_thenSummedPerSlot() {
+        for (int i = 0; i < 3; i++) {
+            ledger.tryReserve("LISBOA", tomorrow, Slot.MORNING, 3);
+        }
+        ledger.tryReserve("PORTO", tomorrow, Slot.MORNING, 3);
+        ledger.tryReserve("PORTO", tomorrow, Slot.EVENING, 3);
+
+        assertEquals(4, ledger.booked(Slot.MORNING));
+        assertEquals(1, ledger.full(Slot.MORNING, 3));
+        assertEquals(0, ledger.booked(Slot.AFTERNOON));
+        assertEquals(0, ledger.full(Slot.EVENING, 3));
+    }
+
+    @Test
+    void whenDateOutsideWindow_thenNotCovered() {
+        LocalDate tooFar = LocalDate.now().plusDays(SlotCapacityLedger.WINDOW_DAYS + 1);
+
+        assertTrue(ledger.covers(LocalDate.now()));
+        assertTrue(ledger.covers(LocalDate.now().plusDays(SlotCapacityLedger.WINDOW_DAYS)));
+        assertFalse(ledger.covers(LocalDate.now().minusDays(1)));
+        assertFalse(ledger.covers(tooFar));
+    }
+
+    @Test
+    void whenTransactionRollsBack_thenReservationIsGivenBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(ledger.tryReserve("LISBOA", tomorrow, Slot.MORNING, 15));
+        assertTrue(ledger.releaseOnRollback("LISBOA", tomorrow, Slot.MORNING));
+
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertEquals(0, ledger.count("LISBOA", tomorrow, Slot.MORNING));
+    }
+
+    @Test
+    void whenTransactionCommits_thenReservationIsKept() {
+        TransactionSynchronizationManager.initSynchronization();
+        assertTrue(ledger.tryReserve("LISBOA", tomorrow, Slot.MORNING, 15));
+        ledger.releaseOnRollback("LISBOA", tomorrow, Slot.MORNING);
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+
+        assertEquals(1, ledger.count("LISBOA", tomorrow, Slot.MORNING));
+    }
+
+    @Test
+    void whenOutsideTransaction_thenCallerReleasesItself() {
+        assertFalse(ledger.releaseOnRollback("LISBOA", tomorrow, Slot.MORNING));
+    }
+
+    @Test
+    void whenCancelIsPending_thenPlaceOnlyComesBackAfterCommit() {
+        ledger.tryReserve("LISBOA", tomorrow, Slot.MORNING, 15);
+        ledger.tryReserve("LISBOA", tomorrow, Slot.MORNING, 15);
+        TransactionSynchronizationManager.initSynchronization();
+
+        ledger.releaseAfterCommit("LISBOA", tomorrow, Slot.MORNING);
+        assertEquals(2, ledger.count("LISBOA", tomorrow, Slot.MORNING));
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals(1, ledger.count("LISBOA", tomorrow, Slot.MORNING));
+    }
+
+    // what the transaction manager does at the end of a transaction
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        }
+        synchronizations.forEach(s -> s.afterCompletion(status));
+    }
+}
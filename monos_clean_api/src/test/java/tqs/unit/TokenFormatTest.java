@@ -0,0 +1,41 @@
+package tqs.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import tqs.exceptions.InvalidBookingException;
+import tqs.services.TokenFormat;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TokenFormatTest {
+
+    @Test
+    void shouldAcceptWellFormedToken() {
+        assertThat(TokenFormat.isValid("ABCDEFGHIJ0123456789")).isTrue();
+        assertThat(TokenFormat.sanitize("ABCDEFGHIJ0123456789")).isEqualTo("ABCDEFGHIJ0123456789");
+    }
+
+    @ParameterizedTest
+    @NullAndEmptySource
+    @ValueSource(strings = { "ABCDEFGHIJ012345678", "ABCDEFGHIJ01234567890", "abcdefghij0123456789",
+            "ABCDEFGHIJ012345678-", "ABCDEFGHIJ\r\n12345678", "ABCDEFGHIJ01234567É9" })
+    void shouldRejectMalformedToken(String token) {
+        assertThat(TokenFormat.isValid(token)).isFalse();
+    }
+
+    @Test
+    void shouldReplaceMalformedTokenWhenSanitizing() {
+        assertThat(TokenFormat.sanitize("abc\r\nFAKE LOG LINE")).isEqualTo("[INVALID_TOKEN_FORMAT]");
+        assertThat(TokenFormat.sanitize(null)).isEmpty();
+    }
+
+    @Test
+    void shouldReportMalformedTokenAsNotFound() {
+        assertThatThrownBy(() -> TokenFormat.requireValid("<script>"))
+                .isInstanceOf(InvalidBookingException.class)
+                .hasMessage("No booking found under token: [INVALID_TOKEN_FORMAT]");
+    }
+}
@@ -0,0 +1,64 @@
+package tqs.unit;
+
+import org.junit.jupiter.api.Test;
+
+import tqs.services.TokenGenerator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.*;
+
+class TokenGeneratorTest {
+
+    private final TokenGenerator generator = new TokenGenerator();
+
+    @Test
+    void shouldGenerateTokensInBookingFormat() {
+        for (int i = 0; i < 1000; i++) {
+            assertThat(generator.next()).matches("^[A-Z0-9]{20}$");
+        }
+    }
+
+    @Test
+    void shouldNotRepeatTokens() {
+        Set<String> tokens = new HashSet<>();
+        for (int i = 0; i < 10000; i++) {
+            tokens.add(generator.next());
+        }
+        assertThat(tokens).hasSize(10000);
+    }
+
+    @Test
+    void shouldUseWholeAlphabet() {
+        Set<Character> seen = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            for (char c : generator.next().toCharArray()) {
+                seen.add(c);
+            }
+        }
+        assertThat(seen).hasSize(36);
+    }
+
+    @Test
+    void shouldStayUniqueAcrossVirtualThreads() throws Exception {
+        Set<String> tokens = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 10000; i++) {
+                futures.add(pool.submit(() -> tokens.add(generator.next())));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        assertThat(tokens).hasSize(10000);
+        assertThat(tokens).allMatch(token -> token.matches("^[A-Z0-9]{20}$"));
+    }
+}
@@ -0,0 +1,50 @@
+package tqs.perf
+
+import io.gatling.core.Predef._
+import io.gatling.http.Predef._
+
+import scala.concurrent.duration._
+
+// citizens creating a booking, checking it and sometimes cancelling it
+class CitizenBookingSimulation extends Simulation {
+
+  import PerfConfig._
+
+  val citizen = scenario("Citizen create/check/cancel")
+    .feed(bookingFeeder)
+    .exec(
+      http("create booking")
+        .post("/api/bookings")
+        .body(StringBody(bookingBody))
+        // a full slot answers 400, which is a valid outcome under load
+        .check(status.in(201, 400))
+        .check(tokenOnCreate)
+    )
+    .doIf("#{token.exists()}") {
+      exec(
+        http("check booking")
+          .get("/api/bookings/#{token}")
+          .check(status.is(200))
+      )
+        .randomSwitch(
+          30.0 -> exec(
+            http("cancel booking")
+              .delete("/api/bookings/#{token}")
+              .check(status.is(204))
+          )
+        )
+    }
+
+  setUp(
+    citizen.inject(
+      rampUsersPerSec(1).to(20).during(10.seconds),
+      constantUsersPerSec(20).during(duration.seconds)
+    )
+  ).protocols(httpProtocol)
+    .assertions(
+      global.responseTime.percentile(95).lt(p95Ms),
+      global.responseTime.percentile(99).lt(p99Ms),
+      global.failedRequests.percent.lt(1),
+      global.requestsPerSec.gte(minRps)
+    )
+}
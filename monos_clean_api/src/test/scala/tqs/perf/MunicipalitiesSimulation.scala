@@ -0,0 +1,33 @@
+package tqs.perf
+
+import io.gatling.core.Predef._
+import io.gatling.http.Predef._
+
+import scala.concurrent.duration._
+
+// the municipality list is read on every form load and should be served from the cache
+class MunicipalitiesSimulation extends Simulation {
+
+  import PerfConfig._
+
+  val readers = scenario("Municipality list reads")
+    .exec(
+      http("list municipalities")
+        .get("/api/municipalities")
+        .check(status.is(200))
+        .check(jsonPath("$[0].code").exists)
+    )
+
+  setUp(
+    readers.inject(
+      constantUsersPerSec(50).during(duration.seconds)
+    )
+  ).protocols(httpProtocol)
+    .assertions(
+      // cached reads get a tighter budget than the write paths
+      global.responseTime.percentile(95).lt(p95Ms / 5),
+      global.responseTime.percentile(99).lt(p99Ms / 5),
+      global.failedRequests.percent.lt(1),
+      global.requestsPerSec.gte(40)
+    )
+}
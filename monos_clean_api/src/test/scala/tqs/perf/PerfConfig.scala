@@ -0,0 +1,46 @@
+package tqs.perf
+
+import io.gatling.core.Predef._
+import io.gatling.http.Predef._
+
+import java.time.LocalDate
+import scala.util.Random
+
+// shared settings for the load tests -- everything can be overridden with -D on the mvn command line
+object PerfConfig {
+
+  val baseUrl: String = sys.props.getOrElse("baseUrl", "http://localhost:8080")
+
+  // how long the steady-state scenarios run, in seconds
+  val duration: Int = Integer.getInteger("duration", 30)
+
+  // latency budgets in ms and the minimum throughput in req/s
+  val p95Ms: Int = Integer.getInteger("sla.p95", 500)
+  val p99Ms: Int = Integer.getInteger("sla.p99", 1000)
+  val minRps: Int = Integer.getInteger("sla.minRps", 20)
+
+  val httpProtocol = http
+    .baseUrl(baseUrl)
+    .acceptHeader("application/json")
+    .contentTypeHeader("application/json")
+
+  // spread bookings over municipalities, days and slots so the 15-per-slot cap is not the bottleneck
+  private val municipalities = Seq("Lisboa", "Porto", "Braga", "Coimbra", "Faro", "Aveiro", "Leiria", "Viseu")
+  private val slots = Seq("MORNING", "AFTERNOON", "EVENING")
+
+  val bookingFeeder: Iterator[Map[String, Any]] = Iterator.continually {
+    Map(
+      "municipality" -> municipalities(Random.nextInt(municipalities.size)),
+      "collectionDate" -> LocalDate.now().plusDays(1 + Random.nextInt(14)).toString,
+      "timeSlot" -> slots(Random.nextInt(slots.size)),
+      "n" -> Random.nextInt(1000000)
+    )
+  }
+
+  // rejections come back as plain text, so the token is picked with a regex rather than jsonPath
+  val tokenOnCreate = regex("\"token\":\"([A-Z0-9]+)\"").optional.saveAs("token")
+
+  val bookingBody: String =
+    """{"municipality":"#{municipality}","description":"Old sofa #{n}","collectionDate":"#{collectionDate}",""" +
+      """"timeSlot":"#{timeSlot}","contactInfo":"user#{n}@example.com","address":"Street #{n}"}"""
+}
@@ -0,0 +1,40 @@
+package tqs.perf
+
+import io.gatling.core.Predef._
+import io.gatling.http.Predef._
+
+import java.time.LocalDate
+import scala.concurrent.duration._
+
+// everyone going for the same slot the moment it opens -- at most 15 succeed, the rest
+// must be turned away quickly with a 400
+class SlotSpikeSimulation extends Simulation {
+
+  import PerfConfig._
+
+  val users: Int = Integer.getInteger("spike.users", 500)
+  val spikeDate: String = sys.props.getOrElse("spike.date", LocalDate.now().plusDays(14).toString)
+
+  val spike = scenario("Slot opening spike")
+    .exec(_.set("n", scala.util.Random.nextInt(1000000)))
+    .exec(
+      http("create booking in contested slot")
+        .post("/api/bookings")
+        .body(StringBody(
+          s"""{"municipality":"Lisboa","description":"Old sofa #{n}","collectionDate":"$spikeDate",""" +
+            """"timeSlot":"MORNING","contactInfo":"user#{n}@example.com","address":"Street #{n}"}"""))
+        .check(status.in(201, 400))
+    )
+
+  setUp(
+    spike.inject(atOnceUsers(users))
+  ).protocols(httpProtocol)
+    .maxDuration(1.minute)
+    .assertions(
+      global.responseTime.percentile(95).lt(p95Ms),
+      global.responseTime.percentile(99).lt(p99Ms),
+      global.failedRequests.count.is(0L),
+      // the whole burst has to be served within a few seconds
+      global.requestsPerSec.gte(minRps)
+    )
+}
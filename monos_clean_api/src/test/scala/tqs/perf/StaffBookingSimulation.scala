@@ -0,0 +1,66 @@
+package tqs.perf
+
+import io.gatling.core.Predef._
+import io.gatling.http.Predef._
+
+import scala.concurrent.duration._
+
+// staff browsing the listings and walking a booking through its states -- every user creates
+// its own booking first so status updates never race each other
+class StaffBookingSimulation extends Simulation {
+
+  import PerfConfig._
+
+  val staff = scenario("Staff listing and status updates")
+    .feed(bookingFeeder)
+    .exec(
+      http("seed booking")
+        .post("/api/bookings")
+        .body(StringBody(bookingBody))
+        .check(status.in(201, 400))
+        .check(tokenOnCreate)
+    )
+    .exec(
+      http("list bookings")
+        .get("/api/staff/bookings")
+        .queryParam("size", "50")
+        .check(status.is(200))
+    )
+    .exec(
+      http("list by status")
+        .get("/api/staff/bookings")
+        .queryParam("status", "RECEIVED")
+        .queryParam("size", "50")
+        .check(status.is(200))
+    )
+    .exec(
+      http("list by municipality and date")
+        .get("/api/staff/bookings")
+        .queryParam("municipality", "#{municipality}")
+        .queryParam("date", "#{collectionDate}")
+        .check(status.is(200))
+    )
+    .doIf("#{token.exists()}") {
+      foreach(Seq("ASSIGNED", "IN_PROGRESS", "COMPLETED"), "newStatus") {
+        exec(
+          http("update status")
+            .patch("/api/staff/bookings/#{token}/update")
+            .queryParam("newStatus", "#{newStatus}")
+            .check(status.is(200))
+        )
+      }
+    }
+
+  setUp(
+    staff.inject(
+      rampUsersPerSec(1).to(10).during(10.seconds),
+      constantUsersPerSec(10).during(duration.seconds)
+    )
+  ).protocols(httpProtocol)
+    .assertions(
+      global.responseTime.percentile(95).lt(p95Ms),
+      global.responseTime.percentile(99).lt(p99Ms),
+      global.failedRequests.percent.lt(1),
+      global.requestsPerSec.gte(minRps)
+    )
+}
@@ -1,4 +1,4 @@
-import React, { useState } from 'react';
+import React, { useState, useEffect } from 'react';
 import { bookingService } from '../services/api';
 
 const CheckBooking = () => {
@@ -7,6 +7,26 @@ const CheckBooking = () => {
     const [loading, setLoading] = useState(false);
     const [error, setError] = useState('');
 
+    // follow status changes pushed by the server instead of re-checking by hand
+    const bookingToken = booking ? booking.token : null;
+    useEffect(() => {
+        if (!bookingToken) return undefined;
+        const events = bookingService.bookingEvents(bookingToken);
+        events.addEventListener('status', (event) => {
+            // the event carries the new status, so there is nothing to fetch. the first one is the
+            // state the stream started from, usually what is already on screen
+            const { status, updatedAt } = JSON.parse(event.data);
+            setBooking((current) => (current && current.status !== status
+                ? { ...current, status, updatedAt }
+                : current));
+            // the server ends the stream for final bookings -- close so the browser does not reconnect
+            if (status === 'COMPLETED' || status === 'CANCELLED') {
+                events.close();
+            }
+        });
+        return () => events.close();
+    }, [bookingToken]);
+
     const handleCheckBooking = async (e) => {
         e.preventDefault();
         if (!token.trim()) return;
@@ -11,6 +11,7 @@ const NewBooking = () => {
         timeSlot: '',
         description: ''
     });
+    const [availability, setAvailability] = useState(null);
     const [loading, setLoading] = useState(false);
     const [result, setResult] = useState(null);
 
@@ -18,6 +19,10 @@ const NewBooking = () => {
         loadMunicipalities();
     }, []);
 
+    useEffect(() => {
+        loadAvailability(formData.municipality);
+    }, [formData.municipality]);
+
     const loadMunicipalities = async () => {
         try {
             const response = await municipalityService.getMunicipalities(); // call external api
@@ -33,6 +38,36 @@ const NewBooking = () => {
         }
     };
 
+    const loadAvailability = async (code) => {
+        if (!code) {
+            setAvailability(null);
+            return;
+        }
+        try {
+            const response = await municipalityService.getAvailability(code);
+            setAvailability(response.data);
+        } catch (error) {
+            console.error('Error loading availability:', error);
+            // without it every slot is offered and the server still checks capacity
+            setAvailability(null);
+        }
+    };
+
+    // places left in a slot of the chosen day, undefined when unknown
+    const remaining = (slot) => {
+        const day = availability?.days.find(d => d.date === formData.collectionDate);
+        return day?.remaining[slot];
+    };
+
+    const slotOption = (slot, label) => {
+        const left = remaining(slot);
+        return (
+            <option value={slot} disabled={left === 0}>
+                {left === undefined ? label : `${label} - ${left === 0 ? 'full' : `${left} left`}`}
+            </option>
+        );
+    };
+
     const handleSubmit = async (e) => {
         e.preventDefault();
         setLoading(true);
@@ -44,6 +79,7 @@ const NewBooking = () => {
                 token: response.data.token,
                 message: 'Booking created successfully!'
             });
+            loadAvailability(formData.municipality);
             // Reset form
             setFormData({
                 contactInfo: '',
@@ -126,6 +162,8 @@ const NewBooking = () => {
                         type="date"
                         name="collectionDate"
                         value={formData.collectionDate}
+                        min={availability?.days[0]?.date}
+                        max={availability?.days[availability.days.length - 1]?.date}
                         onChange={handleChange}
                         required
                     />
@@ -140,9 +178,9 @@ const NewBooking = () => {
                         required
                     >
                         <option value="">Select Time</option>
-                        <option value="MORNING">Morning (8:00-12:00)</option>
-                        <option value="AFTERNOON">Afternoon (12:00-17:00)</option>
-                        <option value="EVENING">Evening (17:00-20:00)</option>
+                        {slotOption('MORNING', 'Morning (8:00-12:00)')}
+                        {slotOption('AFTERNOON', 'Afternoon (12:00-17:00)')}
+                        {slotOption('EVENING', 'Evening (17:00-20:00)')}
                     </select>
                 </div>
 
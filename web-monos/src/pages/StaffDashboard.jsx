@@ -3,6 +3,7 @@ import { bookingService } from '../services/api';
 
 const StaffDashboard = () => {
     const [bookings, setBookings] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
     const [loading, setLoading] = useState(false);
     const [filter, setFilter] = useState('');
 
@@ -10,21 +11,28 @@ const StaffDashboard = () => {
         loadBookings();
     }, []);
 
-    const loadBookings = async () => {
+    // one page at a time -- the X-Next-Cursor header of a page points at the next one
+    const loadPage = async (cursor) => {
         setLoading(true);
         try {
-            const response = await bookingService.getAllBookings();
-            setBookings(response.data);
+            const response = await bookingService.getAllBookings(cursor);
+            setBookings(loaded => cursor ? loaded.concat(response.data) : response.data);
+            setNextCursor(response.headers['x-next-cursor'] || null);
         } catch (error) {
             console.error('Error loading bookings:', error);
         }
         setLoading(false);
     };
 
+    const loadBookings = () => loadPage(null);
+
+    const loadMore = () => loadPage(nextCursor);
+
     const updateStatus = async (token, newStatus) => {
         try {
-            await bookingService.updateBookingStatus(token, newStatus);
-            loadBookings(); // Reload to get updated data
+            const response = await bookingService.updateBookingStatus(token, newStatus);
+            // swapped in place, so the pages loaded so far stay on screen
+            setBookings(loaded => loaded.map(booking => booking.token === token ? response.data : booking));
         } catch (error) {
             alert('Error updating status');
         }
@@ -108,6 +116,12 @@ const StaffDashboard = () => {
             {filteredBookings.length === 0 && !loading && (
                 <p>No bookings found.</p>
             )}
+
+            {nextCursor && (
+                <button onClick={loadMore} disabled={loading}>
+                    {loading ? 'Loading...' : 'Load more'}
+                </button>
+            )}
         </div>
     );
 };
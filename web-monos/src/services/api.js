@@ -1,6 +1,6 @@
 import axios from 'axios';
 
-const API_BASE_URL = 'http://localhost:8080/api';
+export const API_BASE_URL = 'http://localhost:8080/api';
 
 const api = axios.create({
     baseURL: API_BASE_URL,
@@ -14,9 +14,14 @@ export const bookingService = {
     createBooking: (bookingData) => api.post('/bookings', bookingData),
     getBooking: (token) => api.get(`/bookings/${token}`),
     cancelBooking: (token) => api.delete(`/bookings/${token}`),
+    // server-sent events -- one "status" event per change
+    bookingEvents: (token) => new EventSource(`${API_BASE_URL}/bookings/${token}/events`),
 
     // staff
-    getAllBookings: () => api.get('/staff/bookings'),
+    // paged -- pass the X-Next-Cursor header of the previous page as "after"
+    getAllBookings: (after) => api.get('/staff/bookings', {
+        params: after ? { after } : {}
+    }),
     updateBookingStatus: (token, status) =>
         api.patch(`/staff/bookings/${token}/update`, null, {
             params: { newStatus: status }
@@ -25,6 +30,8 @@ export const bookingService = {
 
 export const municipalityService = {
     getMunicipalities: () => api.get('/municipalities'),
+    // places left per slot for each bookable day, today first
+    getAvailability: (code) => api.get(`/municipalities/${code}/availability`),
 };
 
 export default api;
\ No newline at end of file